@@ -0,0 +1,163 @@
+/*
+ * Copyright © 2024 Service Planet Rotterdam B.V. (it@ask.serviceplanet.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.serviceplanet.closuretemplates.toolbox.benchmarks;
+
+import com.google.common.io.CharSource;
+import com.google.common.io.Resources;
+import com.google.template.soy.SoyFileSet;
+import com.google.template.soy.msgs.SoyMsgBundle;
+import com.google.template.soy.msgs.SoyMsgBundleHandler;
+import nl.serviceplanet.closuretemplates.toolbox.msgbundle.PropertiesIcuGenerator;
+import nl.serviceplanet.closuretemplates.toolbox.msgbundle.PropertiesIcuMsgPlugin;
+import nl.serviceplanet.closuretemplates.toolbox.msgbundle.VerboseSoyMsgBundle;
+import nl.serviceplanet.closuretemplates.toolbox.msgbundle.util.SoyUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders templates the way the unit tests do (see {@code SoyTestUtil.render}), with different message bundles:
+ * <ul>
+ *     <li>{@code EMPTY}: {@link SoyMsgBundle#EMPTY}, the source language without any message lookup.</li>
+ *     <li>{@code ICU}: the ICU properties bundle as parsed by {@link PropertiesIcuMsgPlugin}.</li>
+ *     <li>{@code VERBOSE}: the same bundle wrapped in a {@link VerboseSoyMsgBundle}.</li>
+ * </ul>
+ * The templates are the ones of the unit tests plus a generated template with many messages. Reports throughput and
+ * latency percentiles, on one thread and on as many threads as there are processors.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RenderBenchmark {
+
+	private static final String TEST_RESOURCES = "nl/serviceplanet/closuretemplates/toolbox/";
+
+	/** Number of {msg}-elements of each kind (plain, placeholder, plural and select) in the generated template. */
+	private static final int LARGE_TEMPLATE_MSGS_PER_KIND = 25;
+
+	@Param({"product-count", "person-gender", "two-person-gender", "large"})
+	public String template;
+
+	@Param({"EMPTY", "ICU", "VERBOSE"})
+	public String msgBundle;
+
+	private SoyUtil.SoyCompilation soy;
+	private Map<String, ?> data;
+	private SoyMsgBundle bundle;
+
+	@Setup
+	public void setUp() throws IOException {
+		SoyMsgBundle icuBundle;
+		if ("large".equals(template)) {
+			soy = SoyUtil.compileSoyFileSet(SoyFileSet.builder().add(generateLargeTemplate(), "large.soy").build());
+			data = Map.of("userName", "Chris", "productCount", 3, "gender", "female");
+
+			// The extracted messages of the source language serve as the "translation".
+			SoyMsgBundleHandler.OutputFileOptions options = new SoyMsgBundleHandler.OutputFileOptions();
+			options.setSourceLocaleString("en");
+			String properties = PropertiesIcuGenerator.extractSoyMsgBundleFromFileSet(soy.soyFileSet(), options)
+					.propertiesFileContent();
+			icuBundle = new PropertiesIcuMsgPlugin().parseTranslatedMsgsFile(CharSource.wrap(properties));
+		} else {
+			URL soyFile = Resources.getResource(TEST_RESOURCES + template + ".soy");
+			soy = SoyUtil.compileSoyFileSet(SoyFileSet.builder().add(soyFile).build());
+			data = switch (template) {
+				case "product-count" -> Map.of("productCount", 13);
+				case "person-gender" -> Map.of("gender", "female");
+				case "two-person-gender" -> Map.of("sourceGender", "female", "targetGender", "male");
+				default -> throw new IllegalArgumentException("Unknown template '" + template + "'.");
+			};
+
+			URL propertiesFile = Resources.getResource(TEST_RESOURCES + template + "-NL.properties");
+			icuBundle = new SoyMsgBundleHandler(new PropertiesIcuMsgPlugin()).createFromResource(propertiesFile);
+		}
+
+		bundle = switch (msgBundle) {
+			case "EMPTY" -> SoyMsgBundle.EMPTY;
+			case "ICU" -> icuBundle;
+			case "VERBOSE" -> new VerboseSoyMsgBundle(template, icuBundle);
+			default -> throw new IllegalArgumentException("Unknown message bundle '" + msgBundle + "'.");
+		};
+	}
+
+	@Benchmark
+	@Threads(1)
+	public String renderSingleThreaded() {
+		return render();
+	}
+
+	@Benchmark
+	@Threads(Threads.MAX)
+	public String renderMultiThreaded() {
+		return render();
+	}
+
+	private String render() {
+		return soy.soySauce()
+				.renderTemplate(soy.rootTemplateName())
+				.setData(data)
+				.setMsgBundle(bundle)
+				.renderHtml()
+				.get()
+				.toSafeHtml()
+				.getSafeHtmlString();
+	}
+
+	private static String generateLargeTemplate() {
+		StringBuilder soy = new StringBuilder();
+		soy.append("{namespace nl.serviceplanet.large}\n\n");
+		soy.append("{template tmpl}\n");
+		soy.append("    {@param userName: string}\n");
+		soy.append("    {@param productCount: int}\n");
+		soy.append("    {@param gender: string}\n\n");
+		for (int i = 0; i < LARGE_TEMPLATE_MSGS_PER_KIND; i++) {
+			soy.append("    <p>{msg desc=\"Plain message ").append(i).append(".\"}")
+					.append("This is plain message ").append(i).append(" of the benchmark.")
+					.append("{/msg}</p>\n");
+			soy.append("    <p>{msg desc=\"Greeting ").append(i).append(".\"}")
+					.append("Hello {$userName}, this is greeting ").append(i).append(".")
+					.append("{/msg}</p>\n");
+			soy.append("    <p>{msg desc=\"Product count ").append(i).append(".\"}")
+					.append("{plural $productCount}{case 1}You have one product (").append(i).append(").")
+					.append("{default}You have {$productCount} products (").append(i).append(").{/plural}")
+					.append("{/msg}</p>\n");
+			soy.append("    <p>{msg desc=\"Gender ").append(i).append(".\"}")
+					.append("{select $gender}{case 'female'}She has ").append(i).append(" points.")
+					.append("{case 'male'}He has ").append(i).append(" points.")
+					.append("{default}They have ").append(i).append(" points.{/select}")
+					.append("{/msg}</p>\n");
+		}
+		soy.append("{/template}\n");
+		return soy.toString();
+	}
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright © 2024 Service Planet Rotterdam B.V. (it@ask.serviceplanet.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.serviceplanet.closuretemplates.toolbox.msgbundle;
+
+import java.util.SplittableRandom;
+
+/**
+ * Generates ICU properties files with a realistic mix of plain, placeholder, plural, select and nested messages.
+ */
+final class BenchmarkMsgs {
+
+	/** Fixed seed, so every run (and every fork) parses the same file. */
+	private static final long SEED = 42;
+
+	static final String FLAT_MESSAGE = "Hallo {userName}, je hebt {messageCount} nieuwe berichten van {senderName}.";
+
+	static final String NESTED_MESSAGE = "{SOURCE_GENDER,select,"
+			+ "female{{TARGET_GENDER,select,female{Ze deelde een document met haar.}male{Ze deelde een document met hem.}other{Ze deelde een document met hen.}}}"
+			+ "male{{TARGET_GENDER,select,female{Hij deelde een document met haar.}male{Hij deelde een document met hem.}other{Hij deelde een document met hen.}}}"
+			+ "other{{TARGET_GENDER,select,female{Zij deelden een document met haar.}male{Zij deelden een document met hem.}other{Zij deelden een document met hen.}}}}";
+
+	private BenchmarkMsgs() {
+		// Not intended to be instantiated.
+	}
+
+	/**
+	 * Returns the content of a properties file with the given number of messages, in the format written by
+	 * {@link PropertiesIcuGenerator}.
+	 */
+	static String generateProperties(int numMsgs) {
+		SplittableRandom random = new SplittableRandom(SEED);
+
+		StringBuilder properties = new StringBuilder(numMsgs * 96);
+		properties.append("# WARNING! AUTO-GENERATED BY PropertiesIcuGenerator.\n\n");
+		for (int i = 0; i < numMsgs; i++) {
+			long msgId = random.nextLong() & Long.MAX_VALUE;
+			properties.append("# Description of message ").append(i).append(".\n");
+			properties.append(msgId).append('=').append(generateMessage(i)).append("\n\n");
+		}
+		return properties.toString();
+	}
+
+	private static String generateMessage(int i) {
+		return switch (i % 5) {
+			case 0 -> "Dit is gewone tekst nummer " + i + " zonder placeholders.";
+			case 1 -> "Hallo {userName}, je hebt bericht " + i + " ontvangen van {senderName}.";
+			case 2 -> "{productCount,plural,=0{Geen producten (" + i + ").}=1{Je hebt een product.}other{Je hebt # producten.}}";
+			case 3 -> "{GENDER,select,female{Zij heeft " + i + " punten.}male{Hij heeft " + i + " punten.}other{Zij hebben " + i + " punten.}}";
+			default -> "{GENDER,select,female{{itemCount,plural,=1{Zij kocht een artikel.}other{Zij kocht # artikelen.}}}"
+					+ "other{{itemCount,plural,=1{Iemand kocht een artikel.}other{Iemand kocht # artikelen (" + i + ").}}}}";
+		};
+	}
+}
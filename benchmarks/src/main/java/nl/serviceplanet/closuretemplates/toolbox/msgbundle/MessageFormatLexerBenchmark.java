@@ -0,0 +1,67 @@
+/*
+ * Copyright © 2024 Service Planet Rotterdam B.V. (it@ask.serviceplanet.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.serviceplanet.closuretemplates.toolbox.msgbundle;
+
+import com.google.common.collect.ImmutableList;
+import nl.serviceplanet.closuretemplates.toolbox.msgbundle.icu.MessageFormatLexer;
+import nl.serviceplanet.closuretemplates.toolbox.msgbundle.icu.MessageFormatToken;
+import nl.serviceplanet.closuretemplates.toolbox.msgbundle.icu.MessageFormatTokenView;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MessageFormatLexerBenchmark {
+
+	@Param({"flat", "nested"})
+	public String shape;
+
+	private String message;
+
+	@Setup
+	public void setUp() {
+		message = switch (shape) {
+			case "flat" -> BenchmarkMsgs.FLAT_MESSAGE;
+			case "nested" -> BenchmarkMsgs.NESTED_MESSAGE;
+			default -> throw new IllegalArgumentException("Unknown shape '" + shape + "'.");
+		};
+	}
+
+	@Benchmark
+	public ImmutableList<MessageFormatToken> tokenize() {
+		return new MessageFormatLexer(message).tokenize();
+	}
+
+	@Benchmark
+	public ImmutableList<MessageFormatTokenView> tokenizeInPlace() {
+		return new MessageFormatLexer(message).tokenizeInPlace();
+	}
+}
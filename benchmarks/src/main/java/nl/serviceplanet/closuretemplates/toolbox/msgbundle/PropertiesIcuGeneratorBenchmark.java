@@ -0,0 +1,66 @@
+/*
+ * Copyright © 2024 Service Planet Rotterdam B.V. (it@ask.serviceplanet.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.serviceplanet.closuretemplates.toolbox.msgbundle;
+
+import com.google.common.io.CharSource;
+import com.google.template.soy.msgs.SoyMsgBundle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PropertiesIcuGeneratorBenchmark {
+
+	@Param({"1000", "10000"})
+	public int numMsgs;
+
+	private SoyMsgBundle msgBundle;
+
+	@Setup
+	public void setUp() throws IOException {
+		msgBundle = PropertiesIcuParser.parseIcuMsgsPropertiesFile(CharSource.wrap(BenchmarkMsgs.generateProperties(numMsgs)));
+	}
+
+	@Benchmark
+	public CharSequence generateProperties() {
+		return PropertiesIcuGenerator.generateProperties(msgBundle);
+	}
+
+	/**
+	 * Streams the file into a writer which discards it, so only the conversion itself is measured.
+	 */
+	@Benchmark
+	public void generatePropertiesStreaming() throws IOException {
+		PropertiesIcuGenerator.generateProperties(msgBundle, Writer.nullWriter());
+	}
+}
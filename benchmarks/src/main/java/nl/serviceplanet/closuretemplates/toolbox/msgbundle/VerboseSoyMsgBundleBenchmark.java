@@ -0,0 +1,82 @@
+/*
+ * Copyright © 2024 Service Planet Rotterdam B.V. (it@ask.serviceplanet.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.serviceplanet.closuretemplates.toolbox.msgbundle;
+
+import com.google.common.io.CharSource;
+import com.google.template.soy.msgs.SoyMsgBundle;
+import com.google.template.soy.msgs.restricted.SoyMsg;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookups of present and missing messages through a {@link VerboseSoyMsgBundle}, compared with looking them up in the
+ * wrapped bundle directly. Runs on several threads, as rendering does.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class VerboseSoyMsgBundleBenchmark {
+
+	/** Message id which is not in the bundle, the generated ids are never negative. */
+	private static final long MISSING_MSG_ID = -1;
+
+	@Param({"1", "100"})
+	public int sampleRate;
+
+	private SoyMsgBundle wrapped;
+	private VerboseSoyMsgBundle verbose;
+	private long presentMsgId;
+
+	@Setup
+	public void setUp() throws IOException {
+		wrapped = PropertiesIcuParser.parseIcuMsgsPropertiesFile(CharSource.wrap(BenchmarkMsgs.generateProperties(10_000)));
+		verbose = new VerboseSoyMsgBundle("benchmark", wrapped, Duration.ofHours(1), sampleRate);
+		presentMsgId = wrapped.iterator().next().getId();
+	}
+
+	@Benchmark
+	public SoyMsg baselineHit() {
+		return wrapped.getMsg(presentMsgId);
+	}
+
+	@Benchmark
+	public SoyMsg hit() {
+		return verbose.getMsg(presentMsgId);
+	}
+
+	@Benchmark
+	public SoyMsg miss() {
+		return verbose.getMsg(MISSING_MSG_ID);
+	}
+}
@@ -15,15 +15,21 @@
  */
 package nl.serviceplanet.closuretemplates.toolbox.maven;
 
+import com.google.template.soy.SoyFileSet;
 import jnr.posix.POSIXFactory;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.Parameter;
 
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Handles generating command line arguments for options defined in the {@code com.google.template.soy.AbstractSoyCompiler}
@@ -125,18 +131,8 @@ abstract class AbstractClosureTemplatesCompilerMojo extends AbstractMojo {
 	protected List<String> generateBaseCliFlags() {
 		List<String> baseCliFlags = new ArrayList<>();
 
-		String allSoySources = "";
-		if (soySourcesBasePath != null && !soySourcesBasePath.isBlank()) {
-			allSoySources += SoyFileDiscovery.findSoyFilesAsCSV(Path.of(soySourcesBasePath));
-		}
-		if (soySources != null && !soySources.isBlank()) {
-			if (!allSoySources.isEmpty()) {
-				allSoySources += ",";
-			}
-			allSoySources += soySources;
-		}
 		baseCliFlags.add(SRCS_FLAG);
-		baseCliFlags.add(allSoySources);
+		baseCliFlags.add(String.join(",", findSoySources()));
 
 		if (directProtoDeps != null && !directProtoDeps.isBlank()) {
 			baseCliFlags.add(DIRECT_PROTO_DEPS_FLAG);
@@ -166,6 +162,49 @@ abstract class AbstractClosureTemplatesCompilerMojo extends AbstractMojo {
 		return baseCliFlags;
 	}
 
+	/**
+	 * Returns the Soy files on which to work: the files found under {@code soySourcesBasePath} followed by the files
+	 * listed in {@code soySources}, trimmed and without empty entries.
+	 */
+	protected List<String> findSoySources() {
+		List<String> allSoySources = new ArrayList<>();
+		if (soySourcesBasePath != null && !soySourcesBasePath.isBlank()) {
+			SoyFileDiscovery.findSoyFiles(Path.of(soySourcesBasePath)).forEach(path -> allSoySources.add(path.toString()));
+		}
+		if (soySources != null && !soySources.isBlank()) {
+			Arrays.stream(soySources.split(","))
+					.map(String::trim)
+					.filter(soySource -> !soySource.isEmpty())
+					.forEach(allSoySources::add);
+		}
+		return allSoySources;
+	}
+
+	/**
+	 * Whether any proto, header or extern dependencies are configured, in which case the Soy files can not be
+	 * compiled without them.
+	 */
+	protected boolean hasDependencies() {
+		return Stream.of(directProtoDeps, indirectProtoDeps, depHeaders, indirectDepHeaders, javaExternDefinitionJars)
+				.anyMatch(dependency -> dependency != null && !dependency.isBlank());
+	}
+
+	/**
+	 * The location of the Soy compiler, which contains its version in a Maven repository, plus the size and
+	 * modification time of the JAR to also detect a rebuilt snapshot.
+	 */
+	protected static String soyCompilerVersion() throws IOException {
+		try {
+			Path compilerJar = Path.of(SoyFileSet.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+			if (!Files.isRegularFile(compilerJar)) {
+				return compilerJar.toString();
+			}
+			return String.format("%s:%d:%d", compilerJar, Files.size(compilerJar), Files.getLastModifiedTime(compilerJar).toMillis());
+		} catch (URISyntaxException | RuntimeException e) {
+			throw new IOException("Unable to determine the location of the Soy compiler.", e);
+		}
+	}
+
 	/**
 	 * You should probably not override this method, override {@link #executeMojo()} instead. This method ensures
 	 * various base settings get configured.
@@ -0,0 +1,106 @@
+/*
+ * Copyright © 2024 Service Planet Rotterdam B.V. (it@ask.serviceplanet.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.serviceplanet.closuretemplates.toolbox.maven;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.google.common.hash.HashingOutputStream;
+import com.google.common.io.MoreFiles;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Writes generated files only when their content changes, so an unchanged file keeps its modification time and does
+ * not trigger downstream resource processing, packaging or IDE reindexing.
+ * <br /><br />
+ * The new content is streamed to a temporary file next to the target while its hash is computed. The temporary file
+ * replaces the target only if the hash differs from the hash of the existing target.
+ */
+final class ChangedFileWriter {
+	private static final HashFunction CONTENT_HASH = Hashing.sha256();
+
+	/**
+	 * Writes the content of a file.
+	 */
+	@FunctionalInterface
+	interface Content {
+		void writeTo(Writer writer) throws IOException;
+	}
+
+	private ChangedFileWriter() {
+		// Not intended to be instantiated.
+	}
+
+	/**
+	 * Writes the content (UTF-8) to the file, unless the file already has exactly this content.
+	 *
+	 * @return Whether the file was written.
+	 */
+	static boolean write(Path file, Content content) throws IOException {
+		Path tempFile = createTempFileNextTo(file);
+		try {
+			HashCode newHash;
+			try (HashingOutputStream hashingOutput = new HashingOutputStream(CONTENT_HASH, Files.newOutputStream(tempFile));
+				 Writer writer = new BufferedWriter(new OutputStreamWriter(hashingOutput, StandardCharsets.UTF_8))) {
+				content.writeTo(writer);
+				writer.flush();
+				newHash = hashingOutput.hash();
+			}
+			return replaceIfChanged(tempFile, newHash, file);
+		} finally {
+			Files.deleteIfExists(tempFile);
+		}
+	}
+
+	/**
+	 * Moves the new file over the file, unless the file already has the same content. The new file is always gone
+	 * afterwards.
+	 *
+	 * @return Whether the file was replaced.
+	 */
+	static boolean replaceIfChanged(Path newFile, Path file) throws IOException {
+		return replaceIfChanged(newFile, hash(newFile), file);
+	}
+
+	/**
+	 * Creates an empty temporary file in the directory of the file, so it can be moved over the file atomically.
+	 */
+	static Path createTempFileNextTo(Path file) throws IOException {
+		Path directory = (file.getParent() == null) ? Path.of("") : file.getParent();
+		return Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+	}
+
+	private static boolean replaceIfChanged(Path newFile, HashCode newHash, Path file) throws IOException {
+		if (Files.isRegularFile(file) && hash(file).equals(newHash)) {
+			Files.delete(newFile);
+			return false;
+		}
+		Files.move(newFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		return true;
+	}
+
+	private static HashCode hash(Path file) throws IOException {
+		return MoreFiles.asByteSource(file).hash(CONTENT_HASH);
+	}
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright © 2024 Service Planet Rotterdam B.V. (it@ask.serviceplanet.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.serviceplanet.closuretemplates.toolbox.maven;
+
+import com.google.common.io.MoreFiles;
+import com.google.template.soy.SoyFileSet;
+import com.google.template.soy.msgs.SoyMsgBundle;
+import nl.serviceplanet.closuretemplates.toolbox.msgbundle.BinaryMsgBundleFormat;
+import nl.serviceplanet.closuretemplates.toolbox.msgbundle.PlaceholderIndex;
+import nl.serviceplanet.closuretemplates.toolbox.msgbundle.PropertiesIcuMsgPlugin;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Provides a Maven goal which converts translated ICU {@code .properties} message bundles (as read by the
+ * {@link PropertiesIcuMsgPlugin}) into the binary format of {@link BinaryMsgBundleFormat}. This moves the lexing and
+ * parsing of the messages from application startup to build time.
+ */
+@Mojo(name = "icu-properties-to-binary", defaultPhase = LifecyclePhase.PROCESS_RESOURCES)
+public final class ClosureTemplatesIcuPropertiesToBinaryMojo extends AbstractMojo {
+
+	/** File extension of the generated binary message bundles. */
+	private static final String BINARY_BUNDLE_EXTENSION = ".soymsgs";
+
+	@Parameter(defaultValue = "${project}", required = true, readonly = true)
+	private MavenProject project;
+
+	/**
+	 * Comma separated list of ICU {@code .properties} message bundles to convert.
+	 */
+	@Parameter(property = "inputFiles", required = true)
+	private String inputFiles;
+
+	/**
+	 * Directory in which the binary message bundles are written. Every input file results in a file with the same
+	 * name, with its {@code .properties} extension replaced by {@code .soymsgs}.
+	 */
+	@Parameter(property = "outputDirectory", required = true)
+	private String outputDirectory;
+
+	/**
+	 * Optional comma separated list of the Soy files which use the messages. When set, the references in the
+	 * translations are resolved to the placeholder names of the templates (see {@link PlaceholderIndex}), just like the
+	 * properties loaders do when given the same index. Without it the placeholder names are derived from the references,
+	 * which does not work for hand-written camelCase references.
+	 */
+	@Parameter(property = "soySources")
+	private String soySources;
+
+	@Override
+	public void execute() throws MojoExecutionException, MojoFailureException {
+		Path outputDirectoryPath = Path.of(outputDirectory);
+		try {
+			Files.createDirectories(outputDirectoryPath);
+		} catch (Exception e) {
+			throw new MojoExecutionException(String.format("Unable to create output directory '%s'.", outputDirectory), e);
+		}
+
+		PlaceholderIndex placeholderIndex = PlaceholderIndex.EMPTY;
+		if (soySources != null && !soySources.isBlank()) {
+			placeholderIndex = indexSoySources(splitPaths(soySources));
+		}
+
+		PropertiesIcuMsgPlugin icuMsgPlugin = new PropertiesIcuMsgPlugin(PropertiesIcuMsgPlugin.ParseMode.STREAMING, placeholderIndex);
+		for (Path inputPath : splitPaths(inputFiles)) {
+			Path outputPath = convert(inputPath, outputDirectoryPath, icuMsgPlugin);
+			getLog().debug(String.format("Converted '%s' to '%s'.", inputPath, outputPath));
+		}
+	}
+
+	/**
+	 * Indexes the placeholders of the messages in the Soy files.
+	 */
+	static PlaceholderIndex indexSoySources(List<Path> soyFiles) throws MojoFailureException {
+		SoyFileSet.Builder fileSet = SoyFileSet.builder();
+		soyFiles.forEach(soyFile -> fileSet.add(soyFile.toFile()));
+		try {
+			return PlaceholderIndex.fromFileSet(fileSet.build());
+		} catch (RuntimeException e) {
+			throw new MojoFailureException("Unable to index the placeholders of the Soy files.", e);
+		}
+	}
+
+	/**
+	 * Converts the properties file into a binary message bundle in the output directory.
+	 *
+	 * @return The binary message bundle.
+	 */
+	static Path convert(Path inputPath, Path outputDirectory, PropertiesIcuMsgPlugin icuMsgPlugin) throws MojoExecutionException, MojoFailureException {
+		Path outputPath = outputDirectory.resolve(toBinaryBundleFileName(inputPath));
+
+		SoyMsgBundle msgBundle;
+		try {
+			msgBundle = icuMsgPlugin.parseTranslatedMsgsFile(MoreFiles.asCharSource(inputPath, StandardCharsets.UTF_8));
+		} catch (Exception e) {
+			throw new MojoFailureException(String.format("Unable to parse ICU message bundle '%s'.", inputPath), e);
+		}
+
+		try (OutputStream outputStream = Files.newOutputStream(outputPath)) {
+			BinaryMsgBundleFormat.write(msgBundle, outputStream);
+		} catch (Exception e) {
+			throw new MojoExecutionException(String.format("Unable to write binary message bundle '%s'.", outputPath), e);
+		}
+		return outputPath;
+	}
+
+	private static List<Path> splitPaths(String paths) {
+		return Arrays.stream(paths.split(","))
+				.map(String::trim)
+				.filter(path -> !path.isEmpty())
+				.map(Path::of)
+				.toList();
+	}
+
+	private static String toBinaryBundleFileName(Path inputPath) {
+		String fileName = inputPath.getFileName().toString();
+		if (fileName.endsWith(".properties")) {
+			fileName = fileName.substring(0, fileName.length() - ".properties".length());
+		}
+		return fileName + BINARY_BUNDLE_EXTENSION;
+	}
+}
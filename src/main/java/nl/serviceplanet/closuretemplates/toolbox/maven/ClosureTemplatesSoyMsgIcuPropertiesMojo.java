@@ -15,7 +15,20 @@
  */
 package nl.serviceplanet.closuretemplates.toolbox.maven;
 
+import com.google.template.soy.SoyFileSet;
 import com.google.template.soy.SoyMsgExtractor;
+import com.google.template.soy.base.SourceFilePath;
+import com.google.template.soy.base.internal.IncrementingIdGenerator;
+import com.google.template.soy.error.ErrorReporter;
+import com.google.template.soy.msgs.SoyMsgBundle;
+import com.google.template.soy.msgs.SoyMsgBundleHandler;
+import com.google.template.soy.msgs.restricted.SoyMsg;
+import com.google.template.soy.soyparse.SoyFileParser;
+import com.google.template.soy.soytree.ImportNode;
+import com.google.template.soy.soytree.SoyFileNode;
+import nl.serviceplanet.closuretemplates.toolbox.msgbundle.PropertiesIcuGenerator;
+import nl.serviceplanet.closuretemplates.toolbox.msgbundle.PropertiesIcuMsgPlugin;
+import nl.serviceplanet.closuretemplates.toolbox.msgbundle.ShardedSoyMsgBundle;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
@@ -23,8 +36,26 @@ import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
 import java.lang.reflect.Constructor;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Stream;
 
 @Mojo(name = "soy-to-icu-properties", defaultPhase = LifecyclePhase.VERIFY)
 public final class ClosureTemplatesSoyMsgIcuPropertiesMojo extends AbstractClosureTemplatesCompilerMojo {
@@ -32,6 +63,9 @@ public final class ClosureTemplatesSoyMsgIcuPropertiesMojo extends AbstractClosu
 	@Parameter(defaultValue = "${project}", required = true, readonly = true)
 	private MavenProject project;
 
+	@Parameter(defaultValue = "${plugin.version}", readonly = true)
+	private String pluginVersion;
+
 	@Parameter(property = "outputFile")
 	private String outputFile;
 
@@ -41,19 +75,301 @@ public final class ClosureTemplatesSoyMsgIcuPropertiesMojo extends AbstractClosu
 	@Parameter(property = "messagePlugin")
 	private String messagePlugin;
 
+	/**
+	 * Whether only the Soy files which changed since the previous build are parsed, with the messages of the other
+	 * files taken from the {@code extractionCacheDirectory}. Off by default.
+	 * <br /><br />
+	 * Only applies when the {@code messagePlugin} is the {@link PropertiesIcuMsgPlugin} and no proto, header or extern
+	 * dependencies are configured, otherwise all files are always extracted by the Soy message extractor.
+	 */
+	@Parameter(property = "incrementalExtraction", defaultValue = "false")
+	private boolean incrementalExtraction;
+
+	/**
+	 * Directory in which the messages extracted from every Soy file are kept between builds.
+	 */
+	@Parameter(property = "extractionCacheDirectory", defaultValue = "${project.build.directory}/soy-msg-extraction-cache")
+	private String extractionCacheDirectory;
+
+	/**
+	 * Directory in which one properties file (shard) per Soy namespace is written, plus the index of the shards. Can
+	 * be used instead of, or next to, the {@code outputFile}. See {@link ShardedSoyMsgBundle} for loading the shards.
+	 * <br /><br />
+	 * Requires the {@code messagePlugin} to be the {@link PropertiesIcuMsgPlugin} and no proto, header or extern
+	 * dependencies to be configured.
+	 */
+	@Parameter(property = "outputShardDirectory")
+	private String outputShardDirectory;
+
 	@Override
 	public void executeMojo() throws MojoExecutionException, MojoFailureException {
-		String[] args = generateCliFlags().toArray(new String[0]);
+		boolean inProcess = PropertiesIcuMsgPlugin.class.getName().equals(messagePlugin) && !hasDependencies();
+		boolean sharded = outputShardDirectory != null && !outputShardDirectory.isBlank();
+		if (sharded && !inProcess) {
+			throw new MojoFailureException(String.format("Writing shards requires messagePlugin '%s' and no proto, header or extern dependencies.",
+					PropertiesIcuMsgPlugin.class.getName()));
+		}
+		if (inProcess && (incrementalExtraction || sharded)) {
+			extractIncrementally();
+			return;
+		}
+
+		// The extractor writes to a temporary file, which only replaces the output file if its content changed.
+		Path outputPath = Path.of(outputFile);
+		Path tempOutputPath;
+		try {
+			tempOutputPath = ChangedFileWriter.createTempFileNextTo(outputPath);
+		} catch (IOException e) {
+			throw new MojoExecutionException(String.format("Unable to write '%s'.", outputFile), e);
+		}
+
+		try {
+			String[] args = generateCliFlags(tempOutputPath.toString()).toArray(new String[0]);
+
+			SoyMsgExtractor extractor = createSoyMsgExtractorInstance();
+			int exitcode = extractor.run(args, System.err);
+
+			if (exitcode != 0) {
+				throw new MojoFailureException("SoyMsgExtractor returned exit-code: " + exitcode);
+			}
+
+			logIfUpToDate(outputPath, ChangedFileWriter.replaceIfChanged(tempOutputPath, outputPath));
+		} catch (IOException e) {
+			throw new MojoExecutionException(String.format("Unable to write '%s'.", outputFile), e);
+		} finally {
+			try {
+				Files.deleteIfExists(tempOutputPath);
+			} catch (IOException e) {
+				getLog().debug(String.format("Unable to delete temporary file '%s'.", tempOutputPath), e);
+			}
+		}
+	}
+
+	private void logIfUpToDate(Path file, boolean written) {
+		if (!written) {
+			getLog().info(String.format("'%s' is up-to-date.", file));
+		}
+	}
+
+	/**
+	 * Extracts the messages of the changed Soy files (and the files they import, which are needed to parse them) and
+	 * assembles the output from the cache. The output is the same as the output of the Soy message extractor: every
+	 * message once, ordered by message id.
+	 */
+	private void extractIncrementally() throws MojoExecutionException, MojoFailureException {
+		SoyMsgExtractionCache cache;
+		Map<String, String> hashBySoyFile = new LinkedHashMap<>();
+		Set<String> changedSoyFiles = new LinkedHashSet<>();
+		try {
+			cache = new SoyMsgExtractionCache(Path.of(extractionCacheDirectory), pluginVersion + "/" + soyCompilerVersion());
+			for (String soySource : findSoySources()) {
+				String soyFile = new File(soySource).getPath();
+				String hash = cache.hash(Files.readAllBytes(Path.of(soyFile)));
+				hashBySoyFile.put(soyFile, hash);
+				if (!incrementalExtraction || !cache.contains(hash)) {
+					changedSoyFiles.add(soyFile);
+				}
+			}
+		} catch (IOException e) {
+			throw new MojoExecutionException("Unable to read Soy files for message extraction.", e);
+		}
+
+		if (!changedSoyFiles.isEmpty()) {
+			Set<String> parsedSoyFiles = withImportedSoyFiles(changedSoyFiles, hashBySoyFile.keySet());
+			getLog().info(String.format("Extracting messages from %d of %d Soy files (%d changed).",
+					parsedSoyFiles.size(), hashBySoyFile.size(), changedSoyFiles.size()));
+
+			Map<String, SoyFileMsgs> msgsBySoyFile = extractMsgsBySoyFile(parsedSoyFiles);
+			try {
+				for (String soyFile : parsedSoyFiles) {
+					SoyFileMsgs soyFileMsgs = msgsBySoyFile.getOrDefault(soyFile, new SoyFileMsgs(null, List.of()));
+					cache.put(hashBySoyFile.get(soyFile), soyFileMsgs.namespace(), soyFileMsgs.msgs());
+				}
+			} catch (IOException e) {
+				throw new MojoExecutionException(String.format("Unable to write message extraction cache '%s'.", extractionCacheDirectory), e);
+			}
+		} else {
+			getLog().info(String.format("No changes in %d Soy files, messages are taken from the cache.", hashBySoyFile.size()));
+		}
+
+		// Every message once, in the shard of the namespaces of the files it is used in (like the generator does).
+		Map<Long, String> msgs = new TreeMap<>();
+		Map<Long, List<String>> namespacesByMsgId = new HashMap<>();
+		try {
+			for (String hash : hashBySoyFile.values()) {
+				Map<Long, String> soyFileMsgs = new LinkedHashMap<>();
+				String namespace = cache.readInto(hash, soyFileMsgs);
+				soyFileMsgs.forEach((msgId, msg) -> {
+					msgs.putIfAbsent(msgId, msg);
+					namespacesByMsgId.computeIfAbsent(msgId, id -> new ArrayList<>()).add(namespace);
+				});
+			}
+		} catch (IOException e) {
+			throw new MojoExecutionException(String.format("Unable to read message extraction cache '%s'.", extractionCacheDirectory), e);
+		}
+
+		Map<String, Map<Long, String>> msgsByShard = new TreeMap<>();
+		msgs.forEach((msgId, msg) -> msgsByShard
+				.computeIfAbsent(PropertiesIcuGenerator.shardOf(namespacesByMsgId.get(msgId)), shard -> new TreeMap<>())
+				.put(msgId, msg));
+
+		if (outputFile != null && !outputFile.isBlank()) {
+			try {
+				Path outputPath = Path.of(outputFile);
+				logIfUpToDate(outputPath, ChangedFileWriter.write(outputPath, writer -> writeProperties(msgs, writer)));
+			} catch (IOException e) {
+				throw new MojoExecutionException(String.format("Unable to write '%s'.", outputFile), e);
+			}
+		}
+		if (outputShardDirectory != null && !outputShardDirectory.isBlank()) {
+			writeShards(msgsByShard);
+		}
+
+		try {
+			cache.retainOnly(new HashSet<>(hashBySoyFile.values()));
+		} catch (IOException e) {
+			throw new MojoExecutionException(String.format("Unable to clean message extraction cache '%s'.", extractionCacheDirectory), e);
+		}
+	}
+
+	/**
+	 * Writes a shard per namespace and the index. Shards of namespaces which no longer have any messages (according to
+	 * the previous index) are deleted.
+	 */
+	private void writeShards(Map<String, Map<Long, String>> msgsByShard) throws MojoExecutionException {
+		Path directory = Path.of(outputShardDirectory);
+		Path indexFile = directory.resolve(ShardedSoyMsgBundle.INDEX_FILE_NAME);
+		try {
+			Files.createDirectories(directory);
+			Set<String> previousShards = readShardNames(indexFile);
+
+			int written = 0;
+			for (Map.Entry<String, Map<Long, String>> shard : msgsByShard.entrySet()) {
+				if (!shard.getValue().isEmpty()) {
+					Path shardFile = directory.resolve(ShardedSoyMsgBundle.shardFileName(shard.getKey()));
+					written += ChangedFileWriter.write(shardFile, writer -> writeProperties(shard.getValue(), writer)) ? 1 : 0;
+					previousShards.remove(shard.getKey());
+				}
+			}
+			written += ChangedFileWriter.write(indexFile, index -> {
+				PropertiesIcuGenerator.appendHeader(index);
+				for (Map.Entry<String, Map<Long, String>> shard : msgsByShard.entrySet()) {
+					for (long msgId : shard.getValue().keySet()) {
+						PropertiesIcuGenerator.appendShardIndexEntry(msgId, shard.getKey(), index);
+					}
+				}
+			}) ? 1 : 0;
+			getLog().info(String.format("Wrote %d changed shard files to '%s'.", written, outputShardDirectory));
 
-		SoyMsgExtractor extractor = createSoyMsgExtractorInstance();
-		int exitcode = extractor.run(args, System.err);
+			for (String staleShard : previousShards) {
+				Files.deleteIfExists(directory.resolve(ShardedSoyMsgBundle.shardFileName(staleShard)));
+			}
+		} catch (IOException e) {
+			throw new MojoExecutionException(String.format("Unable to write shards to '%s'.", outputShardDirectory), e);
+		}
+	}
+
+	private static void writeProperties(Map<Long, String> msgs, Writer writer) throws IOException {
+		PropertiesIcuGenerator.appendHeader(writer);
+		for (String msg : msgs.values()) {
+			writer.append('\n');
+			writer.append(msg);
+		}
+	}
+
+	private static Set<String> readShardNames(Path indexFile) throws IOException {
+		Set<String> shards = new HashSet<>();
+		if (Files.isRegularFile(indexFile)) {
+			try (Stream<String> lines = Files.lines(indexFile, StandardCharsets.UTF_8)) {
+				lines.filter(line -> !line.isBlank() && !line.startsWith("#"))
+						.forEach(line -> shards.add(line.substring(line.indexOf('=') + 1)));
+			}
+		}
+		return shards;
+	}
+
+	/**
+	 * The messages used in a Soy file.
+	 *
+	 * @param namespace The namespace of the Soy file, taken from the names of the templates the messages are used in.
+	 */
+	private record SoyFileMsgs(String namespace, List<SoyMsg> msgs) {
+	}
+
+	/**
+	 * Extracts the messages of the Soy files, grouped by the Soy file they are used in. A message which is used in
+	 * several files is in the group of each of them.
+	 */
+	private Map<String, SoyFileMsgs> extractMsgsBySoyFile(Set<String> soyFiles) throws MojoFailureException {
+		SoyFileSet.Builder fileSet = SoyFileSet.builder();
+		soyFiles.forEach(soyFile -> fileSet.add(new File(soyFile)));
+
+		SoyMsgBundleHandler.OutputFileOptions options = new SoyMsgBundleHandler.OutputFileOptions();
+		options.setSourceLocaleString(sourceLocaleString);
+
+		SoyMsgBundle msgBundle;
+		try {
+			msgBundle = PropertiesIcuGenerator.extractSoyMsgBundleFromFileSet(fileSet.build(), options).msgBundle();
+		} catch (RuntimeException e) {
+			throw new MojoFailureException("Unable to extract messages from Soy files.", e);
+		}
+
+		Map<String, SoyFileMsgs> msgsBySoyFile = new HashMap<>();
+		for (SoyMsg msg : msgBundle) {
+			for (SoyMsg.SourceLocationAndTemplate source : msg.getSourceLocations()) {
+				SoyFileMsgs soyFileMsgs = msgsBySoyFile.computeIfAbsent(source.sourceLocation().getFilePath().path(),
+						soyFile -> new SoyFileMsgs(PropertiesIcuGenerator.namespaceOfTemplate(source.template()), new ArrayList<>()));
+				List<SoyMsg> msgs = soyFileMsgs.msgs();
+				if (msgs.isEmpty() || msgs.get(msgs.size() - 1) != msg) {
+					msgs.add(msg);
+				}
+			}
+		}
+		return msgsBySoyFile;
+	}
+
+	/**
+	 * Adds the Soy files which are (transitively) imported by the given files. Soy files can only be parsed together
+	 * with the files they import.
+	 */
+	private static Set<String> withImportedSoyFiles(Set<String> soyFiles, Set<String> allSoyFiles) throws MojoExecutionException {
+		Set<String> result = new LinkedHashSet<>(soyFiles);
+		Deque<String> pending = new ArrayDeque<>(soyFiles);
+		while (!pending.isEmpty()) {
+			String soyFile = pending.pop();
+			for (String importPath : findImports(soyFile)) {
+				String imported = new File(importPath).getPath();
+				if (allSoyFiles.contains(imported) && result.add(imported)) {
+					pending.push(imported);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Paths of the Soy files imported by a Soy file, from its syntax tree. Only the syntax of the file is parsed, so
+	 * the imported files are not needed. Syntax errors are left to the extraction to report.
+	 */
+	private static List<String> findImports(String soyFile) throws MojoExecutionException {
+		SoyFileNode soyFileNode;
+		try (Reader reader = Files.newBufferedReader(Path.of(soyFile), StandardCharsets.UTF_8)) {
+			soyFileNode = new SoyFileParser(new IncrementingIdGenerator(), reader, SourceFilePath.create(soyFile, soyFile),
+					ErrorReporter.devnull()).parseSoyFile();
+		} catch (IOException e) {
+			throw new MojoExecutionException(String.format("Unable to read Soy file '%s'.", soyFile), e);
+		}
 
-		if (exitcode != 0) {
-			throw new MojoFailureException("SoyMsgExtractor returned exit-code: " + exitcode);
+		List<String> imports = new ArrayList<>();
+		if (soyFileNode != null) {
+			for (ImportNode importNode : soyFileNode.getImports()) {
+				imports.add(importNode.getPath());
+			}
 		}
+		return imports;
 	}
 
-	private List<String> generateCliFlags() {
+	private List<String> generateCliFlags(String outputFile) {
 		List<String> args = generateBaseCliFlags();
 
 		args.add("--outputFile");
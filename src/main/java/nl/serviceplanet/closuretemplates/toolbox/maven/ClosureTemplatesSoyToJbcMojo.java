@@ -15,6 +15,9 @@
  */
 package nl.serviceplanet.closuretemplates.toolbox.maven;
 
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.MoreFiles;
 import com.google.template.soy.SoyToJbcSrcCompiler;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
@@ -26,8 +29,11 @@ import org.apache.maven.project.MavenProject;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.lang.reflect.Constructor;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
@@ -61,6 +67,24 @@ public final class ClosureTemplatesSoyToJbcMojo extends AbstractClosureTemplates
 	@Parameter(property = "javaExternDefnJars")
 	private String javaExternDefnJars;
 
+	/**
+	 * Skip the Soy compiler when nothing changed since the previous build: the Soy sources, the proto, header and
+	 * extern dependencies, the compiler flags and the plugin and compiler versions are the same, and all class files
+	 * of the previous build are still present.
+	 */
+	@Parameter(property = "upToDateCheck", defaultValue = "true")
+	private boolean upToDateCheck;
+
+	/**
+	 * File in which the fingerprint of the inputs of the previous build is stored, followed by the class files it
+	 * produced.
+	 */
+	@Parameter(property = "fingerprintFile", defaultValue = "${project.build.directory}/soy-bytecode.fingerprint")
+	private String fingerprintFile;
+
+	@Parameter(defaultValue = "${plugin.version}", readonly = true)
+	private String pluginVersion;
+
 	/**
 	 * Output location where we (temporarily) store the JAR which {@code SoyToJbcSrcCompiler} creates.
 	 */
@@ -68,6 +92,23 @@ public final class ClosureTemplatesSoyToJbcMojo extends AbstractClosureTemplates
 
 	@Override
 	public void executeMojo() throws MojoExecutionException, MojoFailureException {
+		Path outputDirectory = Path.of(project.getBuild().getOutputDirectory());
+		Path fingerprintPath = Path.of(fingerprintFile);
+		String fingerprint = null;
+		if (upToDateCheck) {
+			try {
+				fingerprint = computeFingerprint();
+				if (isUpToDate(fingerprintPath, fingerprint, outputDirectory)) {
+					getLog().info("Compiled templates are up-to-date, skipping Soy compiler.");
+					return;
+				}
+				// A failed build must not leave the fingerprint of an earlier build behind.
+				Files.deleteIfExists(fingerprintPath);
+			} catch (IOException e) {
+				throw new MojoExecutionException(String.format("Unable to check whether '%s' is up-to-date.", fingerprintFile), e);
+			}
+		}
+
 		try {
 			try {
 				compiledTemplatesJar = Files.createTempFile("soy-bytecode", ".jar");
@@ -95,12 +136,21 @@ public final class ClosureTemplatesSoyToJbcMojo extends AbstractClosureTemplates
 			}
 			getLog().debug("Soy compiler completed successfully.");
 
+			List<String> extractedFiles;
 			try {
 				// Extract the generated JAR file to the classes directory in the Maven target folder.
-				extractJar(compiledTemplatesJar, Path.of(project.getBuild().getOutputDirectory()));
+				extractedFiles = extractJar(compiledTemplatesJar, outputDirectory);
 			} catch (Exception e) {
 				throw new MojoExecutionException("Unable to extract JAR file generated by 'SoyToJbcSrcCompiler' to 'classes' folder.", e);
 			}
+
+			if (fingerprint != null) {
+				try {
+					writeFingerprint(fingerprintPath, fingerprint, extractedFiles);
+				} catch (IOException e) {
+					throw new MojoExecutionException(String.format("Unable to write '%s'.", fingerprintFile), e);
+				}
+			}
 		} finally {
 			if (compiledTemplatesJar != null) {
 				try {
@@ -129,7 +179,84 @@ public final class ClosureTemplatesSoyToJbcMojo extends AbstractClosureTemplates
 		return compilerCliArgs;
 	}
 
-	private void extractJar(Path jarFile, Path extractTarget) throws IOException {
+	/**
+	 * Hashes everything the compiler output depends on. The files are read relative to the current (work) directory,
+	 * just like the compiler does.
+	 */
+	private String computeFingerprint() throws IOException {
+		Hasher hasher = Hashing.sha256().newHasher();
+		putString(hasher, pluginVersion);
+		putString(hasher, soyCompilerVersion());
+
+		List<String> cliArgs = generateBaseCliFlags();
+		if (javaExternDefnJars != null && !javaExternDefnJars.isBlank()) {
+			cliArgs.add(JAVA_EXTERN_DEFN_JARS_FLAG);
+			cliArgs.add(javaExternDefnJars);
+		}
+		cliArgs.forEach(cliArg -> putString(hasher, cliArg));
+
+		List<String> inputFiles = new ArrayList<>(findSoySources());
+		for (String dependency : Arrays.asList(directProtoDeps, indirectProtoDeps, depHeaders, indirectDepHeaders,
+				javaExternDefinitionJars, javaExternDefnJars)) {
+			if (dependency != null && !dependency.isBlank()) {
+				inputFiles.addAll(Arrays.asList(dependency.split(",")));
+			}
+		}
+		for (String inputFile : inputFiles) {
+			Path path = Path.of(inputFile.trim());
+			putString(hasher, inputFile);
+			// A missing file is left to the compiler to report.
+			putString(hasher, Files.isRegularFile(path) ? MoreFiles.asByteSource(path).hash(Hashing.sha256()).toString() : "");
+		}
+
+		return hasher.hash().toString();
+	}
+
+	private static void putString(Hasher hasher, String value) {
+		hasher.putString(String.valueOf(value), StandardCharsets.UTF_8);
+		hasher.putByte((byte) 0);
+	}
+
+	/**
+	 * Whether the fingerprint file holds the fingerprint and all class files it lists still exist in the output
+	 * directory.
+	 */
+	static boolean isUpToDate(Path fingerprintPath, String fingerprint, Path outputDirectory) throws IOException {
+		if (!Files.isRegularFile(fingerprintPath)) {
+			return false;
+		}
+
+		List<String> lines = Files.readAllLines(fingerprintPath, StandardCharsets.UTF_8);
+		if (lines.isEmpty() || !lines.get(0).equals(fingerprint)) {
+			return false;
+		}
+		return lines.stream()
+				.skip(1)
+				.allMatch(outputFile -> Files.isRegularFile(outputDirectory.resolve(outputFile)));
+	}
+
+	/**
+	 * Writes the fingerprint, followed by the class files (relative to the output directory) the build produced.
+	 */
+	static void writeFingerprint(Path fingerprintPath, String fingerprint, List<String> outputFiles) throws IOException {
+		if (fingerprintPath.getParent() != null) {
+			Files.createDirectories(fingerprintPath.getParent());
+		}
+		ChangedFileWriter.write(fingerprintPath, writer -> {
+			writer.write(fingerprint);
+			writer.write('\n');
+			for (String outputFile : outputFiles) {
+				writer.write(outputFile);
+				writer.write('\n');
+			}
+		});
+	}
+
+	/**
+	 * @return The names of the extracted files, relative to the extract target.
+	 */
+	private List<String> extractJar(Path jarFile, Path extractTarget) throws IOException {
+		List<String> extractedFiles = new ArrayList<>();
 		byte[] buffer = new byte[1024];
 		try (ZipInputStream zipInputStream = new ZipInputStream(Files.newInputStream(jarFile))) {
 			for (ZipEntry zipEntry; (zipEntry = zipInputStream.getNextEntry()) != null; ) {
@@ -165,11 +292,13 @@ public final class ClosureTemplatesSoyToJbcMojo extends AbstractClosureTemplates
 							outputStream.write(buffer, 0, len);
 						}
 					}
+					extractedFiles.add(zipEntry.getName());
 				}
 			}
 
 			zipInputStream.closeEntry();
 		}
+		return extractedFiles;
 	}
 
 	private SoyToJbcSrcCompiler createSoyToJbcSrcCompilerInstance() {
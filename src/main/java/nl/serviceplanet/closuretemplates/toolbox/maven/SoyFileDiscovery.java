@@ -34,10 +34,14 @@ public final class SoyFileDiscovery {
 				.collect(Collectors.joining(","));
 	}
 
+	/**
+	 * Returns all Soy files under the specified base path, sorted so the order does not depend on the file system.
+	 */
 	public static ImmutableSet<Path> findSoyFiles(Path basePath) {
 		try (Stream<Path> stream = Files.walk(basePath, 200)) {
 			return stream
 					.filter(path -> path.getFileName().toString().endsWith(".soy"))
+					.sorted()
 					.collect(ImmutableSet.toImmutableSet());
 		} catch (Exception e) {
 			throw new IllegalStateException(String.format("Failed searching for soy-files in: '%s'.", basePath), e);
@@ -0,0 +1,158 @@
+/*
+ * Copyright © 2024 Service Planet Rotterdam B.V. (it@ask.serviceplanet.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.serviceplanet.closuretemplates.toolbox.maven;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.template.soy.msgs.restricted.SoyMsg;
+import nl.serviceplanet.closuretemplates.toolbox.msgbundle.PropertiesIcuGenerator;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * On-disk cache of the messages extracted from Soy files, keyed by the SHA-256 hash of the content of a Soy file and
+ * the version of the tools which extracted them (the plugin and the Soy compiler), so an upgrade never reuses messages
+ * extracted by an older version.
+ * <br /><br />
+ * Every entry is a file with the messages of one Soy file: a line with the namespace of the Soy file, followed by the
+ * messages in the format of {@link PropertiesIcuGenerator} (without the header). A Soy file whose content did not
+ * change since the previous build does not have to be parsed again, the messages of all files are assembled from the
+ * entries instead.
+ */
+final class SoyMsgExtractionCache {
+
+	/**
+	 * Version of the format of the entries, part of the name of every entry so entries of an older format are never
+	 * read.
+	 */
+	private static final String ENTRY_SUFFIX = ".v2.properties";
+
+	private final Path directory;
+	private final String toolVersion;
+
+	/**
+	 * @param toolVersion Version of everything the extracted messages depend on besides the content of the Soy file.
+	 */
+	SoyMsgExtractionCache(Path directory, String toolVersion) throws IOException {
+		this.directory = Files.createDirectories(directory);
+		this.toolVersion = toolVersion;
+	}
+
+	/**
+	 * Key of the entry of a Soy file.
+	 */
+	String hash(byte[] soyFileContent) {
+		Hasher hasher = Hashing.sha256().newHasher();
+		hasher.putString(toolVersion, StandardCharsets.UTF_8);
+		hasher.putByte((byte) 0);
+		hasher.putBytes(soyFileContent);
+		return hasher.hash().toString();
+	}
+
+	boolean contains(String hash) {
+		return Files.isRegularFile(entry(hash));
+	}
+
+	/**
+	 * Stores the messages of a Soy file. The entry is written to a temporary file first, so an interrupted build never
+	 * leaves a partial entry behind.
+	 *
+	 * @param namespace The namespace of the Soy file, {@code null} if it is not known (e.g. a file without messages).
+	 */
+	void put(String hash, String namespace, Collection<SoyMsg> msgs) throws IOException {
+		Path tempFile = Files.createTempFile(directory, hash, ".tmp");
+		try {
+			try (Writer writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+				writer.append((namespace == null) ? "" : namespace).append('\n');
+				for (SoyMsg msg : msgs) {
+					PropertiesIcuGenerator.appendMessage(msg, writer);
+				}
+			}
+			Files.move(tempFile, entry(hash), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(tempFile);
+		}
+	}
+
+	/**
+	 * Adds the messages of a Soy file to {@code msgs}, keyed by message id. A message which is already present (because
+	 * it is also used in another Soy file) is not replaced.
+	 *
+	 * @param msgs The message id and the text (description comment and property) of every message.
+	 * @return The namespace of the Soy file, {@code null} if it is not known.
+	 */
+	String readInto(String hash, Map<Long, String> msgs) throws IOException {
+		try (BufferedReader reader = Files.newBufferedReader(entry(hash), StandardCharsets.UTF_8)) {
+			String namespace = reader.readLine();
+			if (namespace == null) {
+				throw new IOException(String.format("Corrupt message extraction cache entry '%s'.", entry(hash)));
+			}
+
+			StringBuilder msg = new StringBuilder();
+			for (String line; (line = reader.readLine()) != null; ) {
+				if (line.isEmpty()) {
+					continue;
+				}
+
+				msg.append(line).append('\n');
+				if (!line.startsWith("#")) {
+					// The property ends the message, any lines before it are the description.
+					int separator = line.indexOf('=');
+					if (separator == -1) {
+						throw new IOException(String.format("Corrupt message extraction cache entry '%s'.", entry(hash)));
+					}
+					long msgId;
+					try {
+						msgId = Long.parseLong(line, 0, separator, 10);
+					} catch (NumberFormatException e) {
+						throw new IOException(String.format("Corrupt message extraction cache entry '%s'.", entry(hash)), e);
+					}
+					msgs.putIfAbsent(msgId, msg.toString());
+					msg.setLength(0);
+				}
+			}
+			return namespace.isEmpty() ? null : namespace;
+		}
+	}
+
+	/**
+	 * Deletes all entries except those of the given hashes, so the cache does not grow with every change.
+	 */
+	void retainOnly(Set<String> hashes) throws IOException {
+		try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory, "*" + ENTRY_SUFFIX)) {
+			for (Path entry : entries) {
+				String fileName = entry.getFileName().toString();
+				if (!hashes.contains(fileName.substring(0, fileName.length() - ENTRY_SUFFIX.length()))) {
+					Files.deleteIfExists(entry);
+				}
+			}
+		}
+	}
+
+	private Path entry(String hash) {
+		return directory.resolve(hash + ENTRY_SUFFIX);
+	}
+}
@@ -0,0 +1,349 @@
+/*
+ * Copyright © 2024 Service Planet Rotterdam B.V. (it@ask.serviceplanet.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.serviceplanet.closuretemplates.toolbox.msgbundle;
+
+import com.google.common.collect.ImmutableList;
+import com.google.template.soy.msgs.SoyMsgBundle;
+import com.google.template.soy.msgs.SoyMsgException;
+import com.google.template.soy.msgs.restricted.SoyMsg;
+import com.google.template.soy.msgs.restricted.SoyMsgPart;
+import com.google.template.soy.msgs.restricted.SoyMsgPlaceholderPart;
+import com.google.template.soy.msgs.restricted.SoyMsgPluralCaseSpec;
+import com.google.template.soy.msgs.restricted.SoyMsgPluralPart;
+import com.google.template.soy.msgs.restricted.SoyMsgRawTextPart;
+import com.google.template.soy.msgs.restricted.SoyMsgSelectPart;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Compact binary representation of a {@link SoyMsgBundle}, intended to be produced at build time (see the
+ * {@code icu-properties-to-binary} goal) so loading a bundle at runtime does not require any text parsing.
+ * <br /><br />
+ * Layout (all numbers big-endian):
+ * <pre>
+ * int     magic ('SPMB')
+ * short   format version
+ * string  locale (may be null)
+ * int     number of messages (n)
+ * long[n] message ids, sorted ascending
+ * int[n]  offset of the part tree of each message, relative to the start of the part trees
+ * ...     part trees
+ * </pre>
+ * A part tree is an {@code int} part count followed by the parts. Each part starts with a tag byte:
+ * <ul>
+ *     <li>raw text: string</li>
+ *     <li>placeholder: string name</li>
+ *     <li>select: string var name, int case count, per case a string spec (null for default) and a part tree</li>
+ *     <li>plural: string var name, int offset, int case count, per case a byte spec type, a long explicit value (only
+ *     for explicit cases) and a part tree</li>
+ * </ul>
+ * A string is an {@code int} byte length ({@code -1} for null) followed by UTF-8 bytes. Only the locale and the spec of
+ * a default select case may be null. The plural spec types are stored as codes of this format (explicit 0, zero 1,
+ * one 2, two 3, few 4, many 5, other 6), so the format does not depend on the Soy version.
+ * <br /><br />
+ * Every length, count and tag is validated while reading, a corrupt or truncated bundle results in a
+ * {@link SoyMsgException}.
+ */
+public final class BinaryMsgBundleFormat {
+
+	private static final int MAGIC = 0x53504D42; // 'SPMB'
+	private static final short VERSION = 1;
+
+	private static final byte RAW_TEXT_TAG = 1;
+	private static final byte PLACEHOLDER_TAG = 2;
+	private static final byte SELECT_TAG = 3;
+	private static final byte PLURAL_TAG = 4;
+
+	/**
+	 * Minimal encoded size of a message (id, offset and part count), of a part (tag and a string length), of a select
+	 * case (spec length and part count) and of a plural case (spec type and part count). Used to reject a count which
+	 * does not fit in the remaining bytes before allocating anything for it.
+	 */
+	private static final int MIN_MESSAGE_BYTES = Long.BYTES + Integer.BYTES + Integer.BYTES;
+	private static final int MIN_PART_BYTES = 1 + Integer.BYTES;
+	private static final int MIN_SELECT_CASE_BYTES = Integer.BYTES + Integer.BYTES;
+	private static final int MIN_PLURAL_CASE_BYTES = 1 + Integer.BYTES;
+
+	/**
+	 * Maximum nesting of select/plural parts, Soy messages never come close to this.
+	 */
+	private static final int MAX_NESTING_DEPTH = 32;
+
+	private BinaryMsgBundleFormat() {
+		// Not intended to be instantiated.
+	}
+
+	/**
+	 * Writes the given bundle in binary format. The stream is not closed.
+	 */
+	public static void write(SoyMsgBundle msgBundle, OutputStream outputStream) throws IOException {
+		List<SoyMsg> messages = new ArrayList<>(msgBundle.getNumMsgs());
+		msgBundle.forEach(messages::add);
+		messages.sort(Comparator.comparingLong(SoyMsg::getId));
+
+		ByteArrayOutputStream partTreesBytes = new ByteArrayOutputStream();
+		DataOutputStream partTrees = new DataOutputStream(partTreesBytes);
+		int[] offsets = new int[messages.size()];
+		for (int i = 0; i < messages.size(); i++) {
+			offsets[i] = partTrees.size();
+			writeParts(partTrees, messages.get(i).getParts());
+		}
+		partTrees.flush();
+
+		DataOutputStream out = new DataOutputStream(outputStream);
+		out.writeInt(MAGIC);
+		out.writeShort(VERSION);
+		writeString(out, msgBundle.getLocaleString());
+		out.writeInt(messages.size());
+		for (SoyMsg message : messages) {
+			out.writeLong(message.getId());
+		}
+		for (int offset : offsets) {
+			out.writeInt(offset);
+		}
+		partTreesBytes.writeTo(out);
+		out.flush();
+	}
+
+	/**
+	 * Reads the given file and decodes all messages in it.
+	 */
+	public static SoyMsgBundle load(Path file) throws IOException {
+		try {
+			return read(ByteBuffer.wrap(Files.readAllBytes(file)));
+		} catch (SoyMsgException e) {
+			e.setFileOrResourceName(file.toString());
+			throw e;
+		}
+	}
+
+	/**
+	 * Decodes all messages in the given buffer, starting at its current position.
+	 *
+	 * @throws SoyMsgException If the buffer does not contain a valid binary message bundle.
+	 */
+	public static SoyMsgBundle read(ByteBuffer buffer) {
+		try {
+			return readBundle(buffer);
+		} catch (BufferUnderflowException e) {
+			throw new SoyMsgException("Truncated binary message bundle.", e);
+		}
+	}
+
+	private static SoyMsgBundle readBundle(ByteBuffer buffer) {
+		if (buffer.getInt() != MAGIC) {
+			throw new SoyMsgException("Not a binary message bundle (magic number mismatch).");
+		}
+		short version = buffer.getShort();
+		if (version != VERSION) {
+			throw new SoyMsgException(String.format("Unsupported binary message bundle version %d (expected %d).", version, VERSION));
+		}
+
+		String localeString = readNullableString(buffer);
+		int messageCount = readCount(buffer, MIN_MESSAGE_BYTES, "message");
+
+		long[] ids = new long[messageCount];
+		for (int i = 0; i < messageCount; i++) {
+			ids[i] = buffer.getLong();
+			if (i > 0 && ids[i] <= ids[i - 1]) {
+				throw new SoyMsgException(String.format("Message ids in binary message bundle are not sorted at id %d.", ids[i]));
+			}
+		}
+
+		int[] offsets = new int[messageCount];
+		for (int i = 0; i < messageCount; i++) {
+			offsets[i] = buffer.getInt();
+		}
+
+		int partTreesStart = buffer.position();
+		int partTreesSize = buffer.limit() - partTreesStart;
+		LongMapSoyMsgBundle.Builder msgBundle = LongMapSoyMsgBundle.builder(localeString);
+		for (int i = 0; i < messageCount; i++) {
+			if (offsets[i] < 0 || offsets[i] >= partTreesSize) {
+				throw new SoyMsgException(String.format("Invalid offset %d of message %d in binary message bundle.", offsets[i], ids[i]));
+			}
+			buffer.position(partTreesStart + offsets[i]);
+			SoyMsg.Builder message = SoyMsg.builder()
+					.setId(ids[i])
+					.setParts(readParts(buffer, 0));
+			if (localeString != null) {
+				message.setLocaleString(localeString);
+			}
+			msgBundle.add(message.build());
+		}
+
+		return msgBundle.build();
+	}
+
+	private static void writeParts(DataOutputStream out, List<SoyMsgPart> parts) throws IOException {
+		out.writeInt(parts.size());
+		for (SoyMsgPart part : parts) {
+			if (part instanceof SoyMsgRawTextPart rawTextPart) {
+				out.writeByte(RAW_TEXT_TAG);
+				writeString(out, rawTextPart.getRawText());
+			} else if (part instanceof SoyMsgPlaceholderPart placeholderPart) {
+				out.writeByte(PLACEHOLDER_TAG);
+				writeString(out, placeholderPart.getPlaceholderName());
+			} else if (part instanceof SoyMsgSelectPart selectPart) {
+				out.writeByte(SELECT_TAG);
+				writeString(out, selectPart.getSelectVarName());
+				out.writeInt(selectPart.getCases().size());
+				for (SoyMsgPart.Case<String> selectCase : selectPart.getCases()) {
+					writeString(out, selectCase.spec());
+					writeParts(out, selectCase.parts());
+				}
+			} else if (part instanceof SoyMsgPluralPart pluralPart) {
+				out.writeByte(PLURAL_TAG);
+				writeString(out, pluralPart.getPluralVarName());
+				out.writeInt(pluralPart.getOffset());
+				out.writeInt(pluralPart.getCases().size());
+				for (SoyMsgPart.Case<SoyMsgPluralCaseSpec> pluralCase : pluralPart.getCases()) {
+					SoyMsgPluralCaseSpec.Type type = pluralCase.spec().getType();
+					out.writeByte(pluralCaseTypeCode(type));
+					if (type == SoyMsgPluralCaseSpec.Type.EXPLICIT) {
+						out.writeLong(pluralCase.spec().getExplicitValue());
+					}
+					writeParts(out, pluralCase.parts());
+				}
+			} else {
+				throw new IllegalArgumentException(String.format("Encountered unsupported Soy message part: '%s'.", part));
+			}
+		}
+	}
+
+	/**
+	 * @param depth Number of select/plural parts the parts are nested in.
+	 */
+	private static ImmutableList<SoyMsgPart> readParts(ByteBuffer buffer, int depth) {
+		if (depth > MAX_NESTING_DEPTH) {
+			throw new SoyMsgException(String.format("Select/plural parts are nested more than %d levels deep in binary message bundle.", MAX_NESTING_DEPTH));
+		}
+		int partCount = readCount(buffer, MIN_PART_BYTES, "part");
+		ImmutableList.Builder<SoyMsgPart> parts = ImmutableList.builderWithExpectedSize(partCount);
+		for (int i = 0; i < partCount; i++) {
+			byte tag = buffer.get();
+			parts.add(switch (tag) {
+				case RAW_TEXT_TAG -> SoyMsgRawTextPart.of(readString(buffer));
+				case PLACEHOLDER_TAG -> new SoyMsgPlaceholderPart(readString(buffer));
+				case SELECT_TAG -> readSelectPart(buffer, depth + 1);
+				case PLURAL_TAG -> readPluralPart(buffer, depth + 1);
+				default -> throw new SoyMsgException(String.format("Unknown part tag %d in binary message bundle.", tag));
+			});
+		}
+		return parts.build();
+	}
+
+	private static SoyMsgSelectPart readSelectPart(ByteBuffer buffer, int depth) {
+		String selectVarName = readString(buffer);
+		int caseCount = readCount(buffer, MIN_SELECT_CASE_BYTES, "select case");
+		ImmutableList.Builder<SoyMsgPart.Case<String>> cases = ImmutableList.builderWithExpectedSize(caseCount);
+		for (int i = 0; i < caseCount; i++) {
+			String spec = readNullableString(buffer);
+			cases.add(SoyMsgPart.Case.create(spec, readParts(buffer, depth)));
+		}
+		return new SoyMsgSelectPart(selectVarName, cases.build());
+	}
+
+	private static SoyMsgPluralPart readPluralPart(ByteBuffer buffer, int depth) {
+		String pluralVarName = readString(buffer);
+		int offset = buffer.getInt();
+		int caseCount = readCount(buffer, MIN_PLURAL_CASE_BYTES, "plural case");
+		ImmutableList.Builder<SoyMsgPart.Case<SoyMsgPluralCaseSpec>> cases = ImmutableList.builderWithExpectedSize(caseCount);
+		for (int i = 0; i < caseCount; i++) {
+			SoyMsgPluralCaseSpec.Type type = pluralCaseType(buffer.get());
+			SoyMsgPluralCaseSpec spec = (type == SoyMsgPluralCaseSpec.Type.EXPLICIT)
+					? new SoyMsgPluralCaseSpec(buffer.getLong())
+					: SoyMsgPluralCaseSpec.forType(type);
+			cases.add(SoyMsgPart.Case.create(spec, readParts(buffer, depth)));
+		}
+		return new SoyMsgPluralPart(pluralVarName, offset, cases.build());
+	}
+
+	private static int pluralCaseTypeCode(SoyMsgPluralCaseSpec.Type type) {
+		return switch (type) {
+			case EXPLICIT -> 0;
+			case ZERO -> 1;
+			case ONE -> 2;
+			case TWO -> 3;
+			case FEW -> 4;
+			case MANY -> 5;
+			case OTHER -> 6;
+		};
+	}
+
+	private static SoyMsgPluralCaseSpec.Type pluralCaseType(byte code) {
+		return switch (code) {
+			case 0 -> SoyMsgPluralCaseSpec.Type.EXPLICIT;
+			case 1 -> SoyMsgPluralCaseSpec.Type.ZERO;
+			case 2 -> SoyMsgPluralCaseSpec.Type.ONE;
+			case 3 -> SoyMsgPluralCaseSpec.Type.TWO;
+			case 4 -> SoyMsgPluralCaseSpec.Type.FEW;
+			case 5 -> SoyMsgPluralCaseSpec.Type.MANY;
+			case 6 -> SoyMsgPluralCaseSpec.Type.OTHER;
+			default -> throw new SoyMsgException(String.format("Unknown plural case type %d in binary message bundle.", code));
+		};
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		if (value == null) {
+			out.writeInt(-1);
+			return;
+		}
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readNullableString(ByteBuffer buffer) {
+		if (buffer.getInt(buffer.position()) == -1) {
+			buffer.getInt();
+			return null;
+		}
+		return readString(buffer);
+	}
+
+	private static String readString(ByteBuffer buffer) {
+		int length = buffer.getInt();
+		if (length < 0 || length > buffer.remaining()) {
+			throw new SoyMsgException(String.format("Invalid string length %d in binary message bundle.", length));
+		}
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Reads a count of elements which are each at least {@code minBytesPerElement} long.
+	 */
+	private static int readCount(ByteBuffer buffer, int minBytesPerElement, String element) {
+		int count = buffer.getInt();
+		if (count < 0 || (long) count * minBytesPerElement > buffer.remaining()) {
+			throw new SoyMsgException(String.format("Invalid %s count %d in binary message bundle.", element, count));
+		}
+		return count;
+	}
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright © 2024 Service Planet Rotterdam B.V. (it@ask.serviceplanet.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.serviceplanet.closuretemplates.toolbox.msgbundle;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterators;
+import com.google.template.soy.msgs.SoyMsgBundle;
+import com.google.template.soy.msgs.restricted.SoyMsg;
+import com.ibm.icu.util.ULocale;
+import nl.serviceplanet.closuretemplates.toolbox.msgbundle.util.LongObjectHashMap;
+
+import java.util.Iterator;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * {@link SoyMsgBundle} which resolves every message to its most specific translation in a chain of bundles, for example
+ * {@code nl-BE → nl}. The chain is merged into a single index when the bundle is created, so a lookup is a single map
+ * lookup regardless of the length of the chain.
+ * <br /><br />
+ * {@link #getLocaleString()} is the locale of {@code chain.get(0)}, the most specific bundle. The merged
+ * {@link SoyMsg}s are not copied, so each keeps the locale of the bundle it was taken from: a message which falls back
+ * to the {@code nl} bundle of an {@code [nl-BE, nl]} chain has locale {@code nl}.
+ * <br /><br />
+ * Only the merged messages are kept, not the bundles of the chain. Because the chain is merged once, live bundles (see
+ * {@link LiveSoyMsgBundle}), including wrappers around them, are rejected: the merge would freeze a
+ * {@link ReloadingSoyMsgBundle} and load every message of a {@link LazyPropertiesIcuMsgBundle} or
+ * {@link ShardedSoyMsgBundle}.
+ */
+public final class FallbackChainSoyMsgBundle extends SoyMsgBundle {
+
+	private final String localeString;
+	private final ULocale locale;
+	private final boolean isRtl;
+	private final LongObjectHashMap<SoyMsg> msgs;
+
+	private FallbackChainSoyMsgBundle(String localeString, LongObjectHashMap<SoyMsg> msgs) {
+		this.localeString = localeString;
+		this.locale = super.getLocale();
+		this.isRtl = super.isRtl();
+		this.msgs = msgs;
+	}
+
+	/**
+	 * Merges the bundles into one bundle. A message which is in several bundles is taken from the first bundle which
+	 * contains it.
+	 *
+	 * @param mostSpecificFirst The bundles of the chain, most specific locale first, e.g. {@code [nl-BE, nl]}.
+	 */
+	public static FallbackChainSoyMsgBundle of(List<SoyMsgBundle> mostSpecificFirst) {
+		ImmutableList<SoyMsgBundle> chain = ImmutableList.copyOf(mostSpecificFirst);
+		checkArgument(!chain.isEmpty(), "the chain must contain at least one bundle");
+		for (SoyMsgBundle msgBundle : chain) {
+			checkArgument(!LiveSoyMsgBundle.isLive(msgBundle),
+					"the chain can not contain a live '%s', its messages would be merged only once", msgBundle.getClass().getSimpleName());
+		}
+
+		LongObjectHashMap<SoyMsg> msgs = new LongObjectHashMap<>(chain.get(0).getNumMsgs());
+		for (SoyMsgBundle msgBundle : chain) {
+			for (SoyMsg msg : msgBundle) {
+				msgs.putIfAbsent(msg.getId(), msg);
+			}
+		}
+		msgs.trimToSize();
+
+		return new FallbackChainSoyMsgBundle(chain.get(0).getLocaleString(), msgs);
+	}
+
+	@Override
+	public String getLocaleString() {
+		return localeString;
+	}
+
+	@Override
+	public ULocale getLocale() {
+		return locale;
+	}
+
+	@Override
+	public boolean isRtl() {
+		return isRtl;
+	}
+
+	@Override
+	public SoyMsg getMsg(long id) {
+		return msgs.get(id);
+	}
+
+	@Override
+	public int getNumMsgs() {
+		return msgs.size();
+	}
+
+	@Override
+	public Iterator<SoyMsg> iterator() {
+		return Iterators.unmodifiableIterator(msgs.iterator());
+	}
+}
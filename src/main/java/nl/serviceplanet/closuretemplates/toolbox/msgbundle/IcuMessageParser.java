@@ -0,0 +1,287 @@
+/*
+ * Copyright © 2024 Service Planet Rotterdam B.V. (it@ask.serviceplanet.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.serviceplanet.closuretemplates.toolbox.msgbundle;
+
+import com.google.common.collect.ImmutableList;
+import com.google.template.soy.msgs.SoyMsgException;
+import com.google.template.soy.msgs.restricted.SoyMsgPart;
+import com.google.template.soy.msgs.restricted.SoyMsgPluralCaseSpec;
+import com.google.template.soy.msgs.restricted.SoyMsgPluralPart;
+import com.google.template.soy.msgs.restricted.SoyMsgSelectPart;
+import nl.serviceplanet.closuretemplates.toolbox.msgbundle.icu.MessageFormatTokenType;
+import nl.serviceplanet.closuretemplates.toolbox.msgbundle.util.TextUtil;
+
+/**
+ * Recursive-descent parser which converts a single message in ICU message format into Soy message parts.
+ * <br /><br />
+ * The message is walked exactly once, nested select/plural blocks are parsed in place and the resulting
+ * {@link SoyMsgPart} tree is built on the way. Grammar (whitespace around references, keywords and case selectors is
+ * ignored):
+ * <pre>
+ * message  := (text | '#' | argument)*
+ * argument := '{' ref '}'
+ *           | '{' ref ',' ('select' | 'plural') ',' (selector '{' message '}')+ '}'
+ * </pre>
+ * A {@code #} inside a case of a select/plural block refers to the variable of that block, outside of a block it is
+ * plain text.
+ */
+final class IcuMessageParser {
+
+	private final long msgId;
+	private final String message;
+	private final SoyMsgPartInterner interner;
+	private final PlaceholderIndex placeholderIndex;
+	private int position;
+
+	private IcuMessageParser(long msgId, String message, SoyMsgPartInterner interner, PlaceholderIndex placeholderIndex) {
+		this.msgId = msgId;
+		this.message = message;
+		this.interner = interner;
+		this.placeholderIndex = placeholderIndex;
+		this.position = 0;
+	}
+
+	static ImmutableList<SoyMsgPart> parse(String message) {
+		return parse(message, SoyMsgPartInterner.shared());
+	}
+
+	static ImmutableList<SoyMsgPart> parse(String message, SoyMsgPartInterner interner) {
+		return parse(0, message, interner, PlaceholderIndex.EMPTY);
+	}
+
+	/**
+	 * @param interner         Pool through which names and parts which repeat across messages are resolved.
+	 * @param placeholderIndex Index in which the references of the message are looked up (by {@code msgId}) before
+	 *                         falling back to converting their names.
+	 */
+	static ImmutableList<SoyMsgPart> parse(long msgId, String message, SoyMsgPartInterner interner, PlaceholderIndex placeholderIndex) {
+		IcuMessageParser parser = new IcuMessageParser(msgId, message, interner, placeholderIndex);
+		ImmutableList<SoyMsgPart> parts = parser.parseParts(null);
+		if (parser.position < message.length()) {
+			throw parser.error("Unexpected end-of-expression");
+		}
+		return parts;
+	}
+
+	/**
+	 * Parses text, placeholders and select/plural blocks up to the end of the message, or up to (but not including)
+	 * the closing brace of the case which is currently being parsed.
+	 *
+	 * @param hashPlaceholderName Placeholder name to substitute for {@code #}, or {@code null} when a {@code #} is
+	 *                            plain text.
+	 */
+	private ImmutableList<SoyMsgPart> parseParts(String hashPlaceholderName) {
+		ImmutableList.Builder<SoyMsgPart> parts = ImmutableList.builder();
+
+		int textStart = position;
+		while (position < message.length()) {
+			char current = message.charAt(position);
+			if (current == '}') {
+				break;
+			}
+
+			if (current == '{') {
+				addRawText(parts, textStart, position);
+				parts.add(parseArgument());
+				textStart = position;
+			} else if (current == '#' && hashPlaceholderName != null) {
+				addRawText(parts, textStart, position);
+				parts.add(interner.placeholderPart(hashPlaceholderName));
+				position++;
+				textStart = position;
+			} else {
+				position++;
+			}
+		}
+		addRawText(parts, textStart, position);
+
+		return parts.build();
+	}
+
+	private void addRawText(ImmutableList.Builder<SoyMsgPart> parts, int start, int end) {
+		if (end > start) {
+			parts.add(interner.rawTextPart(message.substring(start, end)));
+		}
+	}
+
+	private SoyMsgPart parseArgument() {
+		expect('{');
+		String ref = parseWord();
+
+		skipWhitespace();
+		if (peek() == '}') {
+			position++;
+			return interner.placeholderPart(convertIcuRefToSoyPlaceholderName(ref, MessageFormatTokenType.PLACEHOLDER));
+		}
+
+		expect(',');
+		String type = parseWord();
+		skipWhitespace();
+		expect(',');
+
+		return switch (type) {
+			case "select" -> parseSelect(interner.name(convertIcuRefToSoyPlaceholderName(ref, MessageFormatTokenType.SELECT)));
+			case "plural" -> parsePlural(interner.name(convertIcuRefToSoyPlaceholderName(ref, MessageFormatTokenType.PLURAL)));
+			default -> throw error("Unsupported switch-type '" + type + "'");
+		};
+	}
+
+	private SoyMsgSelectPart parseSelect(String placeHolderName) {
+		ImmutableList.Builder<SoyMsgPart.Case<String>> cases = ImmutableList.builder();
+		do {
+			String caseSelector = parseWord();
+			String spec = convertCaseSelectorForSoySelect(caseSelector);
+			cases.add(SoyMsgPart.Case.create((spec == null) ? null : interner.name(spec), parseCaseBody(placeHolderName)));
+		} while (!endOfSwitchBlock());
+
+		return new SoyMsgSelectPart(placeHolderName, cases.build());
+	}
+
+	private SoyMsgPluralPart parsePlural(String placeHolderName) {
+		ImmutableList.Builder<SoyMsgPart.Case<SoyMsgPluralCaseSpec>> cases = ImmutableList.builder();
+		do {
+			String caseSelector = parseWord();
+			SoyMsgPluralCaseSpec spec;
+			try {
+				spec = interner.pluralCaseSpec(caseSelector, IcuMessageParser::convertCaseSelectorForSoyPlural);
+			} catch (IllegalArgumentException e) {
+				// Thrown for an unknown plural type, or an explicit value ('=1') which is not a number.
+				throw error("Invalid plural case-selector '" + caseSelector + "'", e);
+			}
+			cases.add(SoyMsgPart.Case.create(spec, parseCaseBody(placeHolderName)));
+		} while (!endOfSwitchBlock());
+
+		return new SoyMsgPluralPart(placeHolderName, 0, cases.build());
+	}
+
+	private ImmutableList<SoyMsgPart> parseCaseBody(String placeHolderName) {
+		skipWhitespace();
+		expect('{');
+		ImmutableList<SoyMsgPart> caseParts = parseParts(placeHolderName);
+		expect('}');
+		return caseParts;
+	}
+
+	/**
+	 * Consumes the closing brace of a select/plural block if the block ends here.
+	 */
+	private boolean endOfSwitchBlock() {
+		skipWhitespace();
+		if (peek() == '}') {
+			position++;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Parses a reference, keyword or case selector. Surrounding whitespace is skipped.
+	 */
+	private String parseWord() {
+		skipWhitespace();
+		int start = position;
+		while (position < message.length()) {
+			char current = message.charAt(position);
+			if (current == ',' || current == '{' || current == '}' || Character.isWhitespace(current)) {
+				break;
+			}
+			position++;
+		}
+		if (start == position) {
+			throw error("Expected a reference, keyword or case-selector");
+		}
+		return message.substring(start, position);
+	}
+
+	private void skipWhitespace() {
+		while (position < message.length() && Character.isWhitespace(message.charAt(position))) {
+			position++;
+		}
+	}
+
+	private char peek() {
+		if (position >= message.length()) {
+			throw error("Unclosed expression");
+		}
+		return message.charAt(position);
+	}
+
+	private void expect(char expected) {
+		if (peek() != expected) {
+			throw error("Expected '" + expected + "'");
+		}
+		position++;
+	}
+
+	private SoyMsgException error(String problem) {
+		return error(problem, null);
+	}
+
+	private SoyMsgException error(String problem, Throwable cause) {
+		return new SoyMsgException(String.format("%s at position %d of ICU message: '%s'.", problem, position, message), cause);
+	}
+
+	private static SoyMsgPluralCaseSpec convertCaseSelectorForSoyPlural(String caseSelector) {
+		// =0, =1, =17, ..., zero, one, two, few, many, other
+		if (caseSelector.startsWith("=")) {
+			return new SoyMsgPluralCaseSpec(Long.parseLong(caseSelector, 1, caseSelector.length(), 10));
+		}
+		// N.B.: the value 'other' in ICU correctly maps to Soy's default-case.
+		return SoyMsgPluralCaseSpec.forType(caseSelector);
+	}
+
+	private static String convertCaseSelectorForSoySelect(String caseSelector) {
+		// N.B.: the value 'other' in ICU does NOT map to the default-case.
+		if ("other".equals(caseSelector)) {
+			return null; // use null, as it triggers Soy's default-case.
+		}
+		return caseSelector;
+	}
+
+	private String convertIcuRefToSoyPlaceholderName(String icuRef, MessageFormatTokenType type) {
+		String indexed = (type == MessageFormatTokenType.PLACEHOLDER)
+				? placeholderIndex.placeholderName(msgId, icuRef)
+				: placeholderIndex.switchVarName(msgId, icuRef);
+		if (indexed != null) {
+			return indexed;
+		}
+
+		// Not in the index (e.g. no templates were given), guess the name.
+		// Soy turns variable 'productCount' into PlaceholderName 'PRODUCT_COUNT_1'.
+		// This has nothing to do with ICU, this seems to be how Soy internally
+		// handles placeholders, and the i18n MsgBundle has to align with this.
+		//
+		// Note that IcuSyntaxUtils.convertMsgPartsToEmbeddedIcuSyntax(...)
+		// does NOT do the opposite, so it's truly unrelated to ICU.
+		//
+		// The _N suffix is only added when several placeholders share a base name, which can not be seen from the
+		// ICU message alone, see PlaceholderIndex.
+
+		if (TextUtil.isUpperSnakeCase(icuRef)) {
+			return icuRef; // assume the var-name is already correctly generated
+		}
+		if (!TextUtil.isCamelCase(icuRef)) {
+			throw error("Reference '" + icuRef + "' does not seem to be an expected variable-name");
+		}
+
+		StringBuilder snakeCase = new StringBuilder(icuRef.length() + 8);
+		TextUtil.appendCamelCaseAsUpperSnakeCase(icuRef, 0, icuRef.length(), snakeCase);
+		if (type == MessageFormatTokenType.PLURAL) {
+			snakeCase.append("_1");
+		}
+		return snakeCase.toString();
+	}
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright © 2024 Service Planet Rotterdam B.V. (it@ask.serviceplanet.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.serviceplanet.closuretemplates.toolbox.msgbundle;
+
+import com.google.common.collect.Iterators;
+import com.google.common.io.CharSource;
+import com.google.template.soy.msgs.SoyMsgBundle;
+import com.google.template.soy.msgs.SoyMsgException;
+import com.google.template.soy.msgs.restricted.SoyMsg;
+import nl.serviceplanet.closuretemplates.toolbox.msgbundle.util.LongObjectHashMap;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.Iterator;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * {@link SoyMsgBundle} which only splits the properties file into message ids and raw ICU messages when it is
+ * loaded. A message is converted into a {@link SoyMsg} the first time it is looked up, after which the raw ICU message
+ * is released. Thread-safe.
+ * <br /><br />
+ * Only the message ids are validated while loading; a malformed ICU message is found when it is first looked up (or
+ * iterated over), which throws a {@link SoyMsgException}. The failure is remembered, so later lookups of that message
+ * throw again without parsing it again.
+ */
+public final class LazyPropertiesIcuMsgBundle extends SoyMsgBundle implements LiveSoyMsgBundle {
+
+	private final LongObjectHashMap<LazyMsg> msgs;
+	private final PlaceholderIndex placeholderIndex;
+
+	private LazyPropertiesIcuMsgBundle(LongObjectHashMap<LazyMsg> msgs, PlaceholderIndex placeholderIndex) {
+		this.msgs = msgs;
+		this.placeholderIndex = placeholderIndex;
+	}
+
+	public static LazyPropertiesIcuMsgBundle load(CharSource propertyIcuMsgs) throws IOException {
+		return load(propertyIcuMsgs, PlaceholderIndex.EMPTY);
+	}
+
+	/**
+	 * @param placeholderIndex Index through which the references in the messages are resolved when they are parsed.
+	 */
+	public static LazyPropertiesIcuMsgBundle load(CharSource propertyIcuMsgs, PlaceholderIndex placeholderIndex) throws IOException {
+		checkNotNull(placeholderIndex, "placeholderIndex");
+
+		LongObjectHashMap<LazyMsg> msgs = new LongObjectHashMap<>();
+		try (BufferedReader reader = propertyIcuMsgs.openBufferedStream()) {
+			for (String line; (line = reader.readLine()) != null; ) {
+				PropertiesIcuParser.IcuMsgProperty property = PropertiesIcuParser.parseIcuMsgProperty(line);
+				if (property == null) {
+					continue;
+				}
+				if (msgs.putIfAbsent(property.msgId(), new LazyMsg(property.msgId(), property.icuMessage())) != null) {
+					throw new IllegalStateException("Duplicate messages with id " + property.msgId());
+				}
+			}
+		}
+		msgs.trimToSize();
+		return new LazyPropertiesIcuMsgBundle(msgs, placeholderIndex);
+	}
+
+	/**
+	 * Always live: the messages are parsed on demand.
+	 */
+	@Override
+	public boolean isLive() {
+		return true;
+	}
+
+	@Override
+	public String getLocaleString() {
+		return null;
+	}
+
+	@Override
+	public SoyMsg getMsg(long id) {
+		LazyMsg msg = msgs.get(id);
+		return (msg == null) ? null : msg.get(placeholderIndex);
+	}
+
+	@Override
+	public int getNumMsgs() {
+		return msgs.size();
+	}
+
+	/**
+	 * Iterates over all messages in file order. This parses every message which has not been looked up yet.
+	 */
+	@Override
+	public Iterator<SoyMsg> iterator() {
+		return Iterators.transform(msgs.iterator(), msg -> msg.get(placeholderIndex));
+	}
+
+	private static final class LazyMsg {
+		private final long id;
+
+		/**
+		 * The raw ICU message ({@code String}) until the message is parsed, the {@link SoyMsg} or the
+		 * {@link SoyMsgException} afterwards. Two threads may both parse the same message the first time, which is
+		 * harmless as both produce an equal result.
+		 */
+		private volatile Object state;
+
+		private LazyMsg(long id, String icuMessage) {
+			this.id = id;
+			this.state = icuMessage;
+		}
+
+		private SoyMsg get(PlaceholderIndex placeholderIndex) {
+			Object current = state;
+			if (current instanceof SoyMsg msg) {
+				return msg;
+			}
+			if (current instanceof SoyMsgException failure) {
+				throw new SoyMsgException(failure.getMessage(), failure.getCause());
+			}
+
+			SoyMsg msg;
+			try {
+				msg = PropertiesIcuParser.parseIcuMsg(id, (String) current, placeholderIndex);
+			} catch (RuntimeException e) {
+				SoyMsgException failure = new SoyMsgException(String.format("Unable to parse ICU message with id '%s'.", id), e);
+				state = failure;
+				throw failure;
+			}
+			state = msg;
+			return msg;
+		}
+	}
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright © 2024 Service Planet Rotterdam B.V. (it@ask.serviceplanet.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.serviceplanet.closuretemplates.toolbox.msgbundle;
+
+import com.google.template.soy.msgs.SoyMsgBundle;
+
+/**
+ * Implemented by {@link SoyMsgBundle}s whose messages may change after they are created or are loaded on demand, and
+ * by bundles which wrap another bundle and therefore are live if the wrapped bundle is.
+ * <br /><br />
+ * A live bundle must be looked up, not copied: copying its messages once (like {@link FallbackChainSoyMsgBundle} does)
+ * freezes a reloading bundle and loads every message of an on demand bundle.
+ */
+public interface LiveSoyMsgBundle {
+
+	/**
+	 * @return Whether the messages of this bundle may change after it was created or are loaded on demand.
+	 */
+	boolean isLive();
+
+	/**
+	 * @return Whether the bundle is a {@link LiveSoyMsgBundle} which reports to be live.
+	 */
+	static boolean isLive(SoyMsgBundle msgBundle) {
+		return msgBundle instanceof LiveSoyMsgBundle liveMsgBundle && liveMsgBundle.isLive();
+	}
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright © 2024 Service Planet Rotterdam B.V. (it@ask.serviceplanet.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.serviceplanet.closuretemplates.toolbox.msgbundle;
+
+import com.google.common.collect.Iterators;
+import com.google.template.soy.msgs.SoyMsgBundle;
+import com.google.template.soy.msgs.restricted.SoyMsg;
+import com.ibm.icu.util.ULocale;
+import nl.serviceplanet.closuretemplates.toolbox.msgbundle.util.LongObjectHashMap;
+
+import java.util.Iterator;
+import java.util.Objects;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Immutable {@link SoyMsgBundle} backed by a {@link LongObjectHashMap}, so {@link #getMsg(long)} does not box the
+ * message id. Messages are iterated in the order in which they were added.
+ */
+public final class LongMapSoyMsgBundle extends SoyMsgBundle {
+
+	private final String localeString;
+	private final ULocale locale;
+	private final boolean isRtl;
+	private final LongObjectHashMap<SoyMsg> msgs;
+
+	private LongMapSoyMsgBundle(String localeString, LongObjectHashMap<SoyMsg> msgs) {
+		this.localeString = localeString;
+		this.locale = super.getLocale();
+		this.isRtl = super.isRtl();
+		this.msgs = msgs;
+	}
+
+	public static Builder builder(String localeString) {
+		return new Builder(localeString);
+	}
+
+	@Override
+	public String getLocaleString() {
+		return localeString;
+	}
+
+	@Override
+	public ULocale getLocale() {
+		return locale;
+	}
+
+	@Override
+	public boolean isRtl() {
+		return isRtl;
+	}
+
+	@Override
+	public SoyMsg getMsg(long id) {
+		return msgs.get(id);
+	}
+
+	@Override
+	public int getNumMsgs() {
+		return msgs.size();
+	}
+
+	/**
+	 * Returns the position of the message in the order in which the messages were added, or {@code -1} if the bundle
+	 * does not contain the message.
+	 */
+	int indexOf(long id) {
+		return msgs.indexOf(id);
+	}
+
+	@Override
+	public Iterator<SoyMsg> iterator() {
+		return Iterators.unmodifiableIterator(msgs.iterator());
+	}
+
+	public static final class Builder {
+		private final String localeString;
+		private LongObjectHashMap<SoyMsg> msgs;
+
+		private Builder(String localeString) {
+			this.localeString = localeString;
+			this.msgs = new LongObjectHashMap<>();
+		}
+
+		/**
+		 * Adds a message. Like {@link com.google.template.soy.msgs.restricted.SoyMsgBundleImpl}, a bundle can not
+		 * contain two messages with the same id.
+		 */
+		public Builder add(SoyMsg msg) {
+			checkMsg(msg);
+			if (msgs.putIfAbsent(msg.getId(), msg) != null) {
+				throw new IllegalStateException("Duplicate messages with id " + msg.getId());
+			}
+			return this;
+		}
+
+		/**
+		 * Adds a message, replacing a previously added message with the same id.
+		 */
+		public Builder put(SoyMsg msg) {
+			checkMsg(msg);
+			msgs.put(msg.getId(), msg);
+			return this;
+		}
+
+		public LongMapSoyMsgBundle build() {
+			checkNotNull(msgs, "build() can only be called once");
+
+			msgs.trimToSize();
+			LongMapSoyMsgBundle msgBundle = new LongMapSoyMsgBundle(localeString, msgs);
+			msgs = null;
+			return msgBundle;
+		}
+
+		private void checkMsg(SoyMsg msg) {
+			checkNotNull(msg, "msg");
+			checkNotNull(msgs, "builder can not be used after build()");
+			checkArgument(Objects.equals(msg.getLocaleString(), localeString),
+					"msg[%s] has locale '%s', expected '%s'", msg.getId(), msg.getLocaleString(), localeString);
+		}
+	}
+}
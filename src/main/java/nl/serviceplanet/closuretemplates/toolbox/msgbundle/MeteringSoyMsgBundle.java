@@ -0,0 +1,217 @@
+/*
+ * Copyright © 2024 Service Planet Rotterdam B.V. (it@ask.serviceplanet.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.serviceplanet.closuretemplates.toolbox.msgbundle;
+
+import com.google.template.soy.msgs.SoyMsgBundle;
+import com.google.template.soy.msgs.restricted.SoyMsg;
+import nl.serviceplanet.closuretemplates.toolbox.msgbundle.util.ConcurrentLongCounterTable;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * {@link SoyMsgBundle} which counts the lookups, hits and misses of the wrapped bundle, in total and per message id.
+ * The counters can be published over JMX with {@link #registerMBean()}. Thread-safe if the wrapped bundle is.
+ * <br /><br />
+ * The totals are kept in striped {@link LongAdder}s, so reading them is cheap; only the top-N lists walk the per
+ * message id counters.
+ */
+public final class MeteringSoyMsgBundle extends SoyMsgBundle implements LiveSoyMsgBundle, MeteringSoyMsgBundleMXBean {
+
+	/**
+	 * Minimum number of distinct message ids which are counted, separately for hits and misses. Beyond that, the
+	 * number of tracked ids follows the size of the wrapped bundle.
+	 */
+	private static final int MIN_TRACKED_MSG_IDS = 1024;
+
+	private static final int MAX_TRACKED_MSG_IDS = 1 << 29;
+
+	private static final int DEFAULT_TOP_N = 20;
+
+	private static final String MBEAN_DOMAIN = "nl.serviceplanet.closuretemplates.toolbox";
+
+	private final String tag;
+	private final SoyMsgBundle wrapped;
+	private final int topN;
+	private final ConcurrentLongCounterTable hits;
+	private final ConcurrentLongCounterTable misses;
+	private final LongAdder hitCount = new LongAdder();
+	private final LongAdder missCount = new LongAdder();
+
+	public MeteringSoyMsgBundle(String tag, SoyMsgBundle wrapped) {
+		this(tag, wrapped, DEFAULT_TOP_N);
+	}
+
+	/**
+	 * @param topN Number of message ids returned by {@link #getTopHits()} and {@link #getTopMisses()}.
+	 */
+	public MeteringSoyMsgBundle(String tag, SoyMsgBundle wrapped, int topN) {
+		checkNotNull(tag, "tag");
+		checkNotNull(wrapped, "wrapped");
+		checkArgument(topN > 0, "topN must be > 0");
+
+		this.tag = tag;
+		this.wrapped = wrapped;
+		this.topN = topN;
+		// A quarter of headroom for bundles which grow, like a ReloadingSoyMsgBundle.
+		int trackedMsgIds = (int) Math.min(MAX_TRACKED_MSG_IDS,
+				Math.max(MIN_TRACKED_MSG_IDS, wrapped.getNumMsgs() + wrapped.getNumMsgs() / 4L));
+		this.hits = new ConcurrentLongCounterTable(trackedMsgIds);
+		this.misses = new ConcurrentLongCounterTable(trackedMsgIds);
+	}
+
+	/**
+	 * Registers this bundle with the platform MBean server, under
+	 * {@code nl.serviceplanet.closuretemplates.toolbox:type=MeteringSoyMsgBundle,tag=<tag>}.
+	 */
+	public ObjectName registerMBean() {
+		MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+		ObjectName objectName = getObjectName();
+		try {
+			mBeanServer.registerMBean(this, objectName);
+		} catch (JMException exc) {
+			throw new IllegalStateException(String.format("Failed to register MBean '%s'.", objectName), exc);
+		}
+		return objectName;
+	}
+
+	public void unregisterMBean() {
+		MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+		ObjectName objectName = getObjectName();
+		try {
+			mBeanServer.unregisterMBean(objectName);
+		} catch (JMException exc) {
+			throw new IllegalStateException(String.format("Failed to unregister MBean '%s'.", objectName), exc);
+		}
+	}
+
+	@Override
+	public String getTag() {
+		return tag;
+	}
+
+	@Override
+	public long getLookupCount() {
+		return getHitCount() + getMissCount();
+	}
+
+	@Override
+	public long getHitCount() {
+		return hitCount.sum();
+	}
+
+	@Override
+	public long getMissCount() {
+		return missCount.sum();
+	}
+
+	@Override
+	public long getUntrackedLookupCount() {
+		return hits.overflowCount() + misses.overflowCount();
+	}
+
+	public long getHitCount(long msgId) {
+		return hits.count(msgId);
+	}
+
+	public long getMissCount(long msgId) {
+		return misses.count(msgId);
+	}
+
+	@Override
+	public List<MsgLookupCount> getTopHits() {
+		return top(hits, topN);
+	}
+
+	@Override
+	public List<MsgLookupCount> getTopMisses() {
+		return top(misses, topN);
+	}
+
+	/**
+	 * Live if the wrapped bundle is.
+	 */
+	@Override
+	public boolean isLive() {
+		return LiveSoyMsgBundle.isLive(wrapped);
+	}
+
+	@Override
+	public String getLocaleString() {
+		return wrapped.getLocaleString();
+	}
+
+	@Override
+	public SoyMsg getMsg(long id) {
+		SoyMsg got = wrapped.getMsg(id);
+		if (got == null) {
+			missCount.increment();
+			misses.increment(id);
+		} else {
+			hitCount.increment();
+			hits.increment(id);
+		}
+		return got;
+	}
+
+	@Override
+	public int getNumMsgs() {
+		return wrapped.getNumMsgs();
+	}
+
+	@Override
+	public Iterator<SoyMsg> iterator() {
+		return wrapped.iterator();
+	}
+
+	private ObjectName getObjectName() {
+		try {
+			return new ObjectName(String.format("%s:type=%s,tag=%s",
+					MBEAN_DOMAIN, MeteringSoyMsgBundle.class.getSimpleName(), ObjectName.quote(tag)));
+		} catch (JMException exc) {
+			throw new IllegalStateException(String.format("Invalid MBean name for tag '%s'.", tag), exc);
+		}
+	}
+
+	private static List<MsgLookupCount> top(ConcurrentLongCounterTable counters, int n) {
+		// Min-heap of the n largest counts seen so far.
+		PriorityQueue<MsgLookupCount> top = new PriorityQueue<>(Comparator.comparingLong(MsgLookupCount::getCount));
+		counters.forEach((msgId, count) -> {
+			if (top.size() < n) {
+				top.add(new MsgLookupCount(msgId, count));
+			} else if (count > top.peek().getCount()) {
+				top.poll();
+				top.add(new MsgLookupCount(msgId, count));
+			}
+		});
+
+		MsgLookupCount[] msgLookupCounts = new MsgLookupCount[top.size()];
+		for (int i = msgLookupCounts.length - 1; i >= 0; i--) {
+			msgLookupCounts[i] = top.poll();
+		}
+		return List.of(msgLookupCounts);
+	}
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright © 2024 Service Planet Rotterdam B.V. (it@ask.serviceplanet.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.serviceplanet.closuretemplates.toolbox.msgbundle;
+
+import javax.management.ConstructorParameters;
+import java.util.List;
+
+/**
+ * JMX view on the lookup statistics of a {@link MeteringSoyMsgBundle}.
+ */
+public interface MeteringSoyMsgBundleMXBean {
+
+	String getTag();
+
+	long getLookupCount();
+
+	long getHitCount();
+
+	long getMissCount();
+
+	/**
+	 * Number of lookups which were not counted per message id because too many distinct ids were looked up.
+	 */
+	long getUntrackedLookupCount();
+
+	/**
+	 * The most looked up messages which were found, most looked up first.
+	 */
+	List<MsgLookupCount> getTopHits();
+
+	/**
+	 * The most looked up messages which were missing, most looked up first.
+	 */
+	List<MsgLookupCount> getTopMisses();
+
+	/**
+	 * Number of lookups of a message id, shown as a composite value over JMX.
+	 */
+	final class MsgLookupCount {
+		private final long msgId;
+		private final long count;
+
+		@ConstructorParameters({"msgId", "count"})
+		public MsgLookupCount(long msgId, long count) {
+			this.msgId = msgId;
+			this.count = count;
+		}
+
+		public long getMsgId() {
+			return msgId;
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof MsgLookupCount other && msgId == other.msgId && count == other.count;
+		}
+
+		@Override
+		public int hashCode() {
+			return Long.hashCode(msgId) * 31 + Long.hashCode(count);
+		}
+
+		@Override
+		public String toString() {
+			return msgId + "=" + count;
+		}
+	}
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright © 2024 Service Planet Rotterdam B.V. (it@ask.serviceplanet.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.serviceplanet.closuretemplates.toolbox.msgbundle;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.template.soy.SoyFileSet;
+import com.google.template.soy.exprtree.ExprRootNode;
+import com.google.template.soy.exprtree.VarRefNode;
+import com.google.template.soy.msgs.internal.MsgUtils;
+import com.google.template.soy.soytree.MsgNode;
+import com.google.template.soy.soytree.MsgPlaceholderNode;
+import com.google.template.soy.soytree.MsgPluralNode;
+import com.google.template.soy.soytree.MsgSelectNode;
+import com.google.template.soy.soytree.PrintNode;
+import com.google.template.soy.soytree.SoyNode;
+import com.google.template.soy.soytree.SoyTreeUtils;
+import nl.serviceplanet.closuretemplates.toolbox.msgbundle.util.LongObjectHashMap;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Maps the references in the ICU messages of a properties file to the placeholder names Soy actually uses, per
+ * message id. Built from the parsed templates, so names like {@code PRODUCT_COUNT_1} (plural) next to
+ * {@code PRODUCT_COUNT_2} (the same variable printed inside the plural) are resolved exactly instead of guessed.
+ * <br /><br />
+ * Within a message, both the Soy placeholder name itself and the template variable it was derived from (e.g.
+ * {@code productCount} for {@code {plural $productCount}}) are accepted as reference. A variable which is the source
+ * of several placeholders of the same kind is ambiguous and is not indexed. Immutable and thread-safe.
+ */
+public final class PlaceholderIndex {
+
+	/**
+	 * Index without any messages, every reference is resolved by converting its name.
+	 */
+	public static final PlaceholderIndex EMPTY = new PlaceholderIndex(new LongObjectHashMap<>(0));
+
+	/**
+	 * The references of a single message: to plain placeholders, and to the variables of select/plural blocks.
+	 */
+	private record MsgRefs(ImmutableMap<String, String> placeholders, ImmutableMap<String, String> switches) {
+	}
+
+	private final LongObjectHashMap<MsgRefs> msgs;
+
+	private PlaceholderIndex(LongObjectHashMap<MsgRefs> msgs) {
+		this.msgs = msgs;
+	}
+
+	/**
+	 * Indexes all {@code {msg}}s in the file set. The file set is parsed, but not compiled.
+	 */
+	public static PlaceholderIndex fromFileSet(SoyFileSet fileSet) {
+		checkNotNull(fileSet, "fileSet");
+		fileSet.resetErrorReporter(); // must be called, otherwise an NPE is thrown in parse()
+
+		LongObjectHashMap<MsgRefs> msgs = new LongObjectHashMap<>();
+		for (MsgNode msgNode : SoyTreeUtils.getAllNodesOfType(fileSet.parse().fileSet(), MsgNode.class)) {
+			long msgId = MsgUtils.buildMsgPartsAndComputeMsgIdForDualFormat(msgNode).id;
+			msgs.putIfAbsent(msgId, indexMsg(msgNode));
+		}
+		msgs.trimToSize();
+		return new PlaceholderIndex(msgs);
+	}
+
+	/**
+	 * @return The Soy placeholder name of a plain reference ({@code {ref}}) in the message, or {@code null} if the
+	 * reference is not known.
+	 */
+	public String placeholderName(long msgId, String icuRef) {
+		MsgRefs refs = msgs.get(msgId);
+		return (refs == null) ? null : refs.placeholders().get(icuRef);
+	}
+
+	/**
+	 * @return The Soy variable name of a select/plural reference ({@code {ref, plural, ...}}) in the message, or
+	 * {@code null} if the reference is not known.
+	 */
+	public String switchVarName(long msgId, String icuRef) {
+		MsgRefs refs = msgs.get(msgId);
+		return (refs == null) ? null : refs.switches().get(icuRef);
+	}
+
+	/**
+	 * Number of indexed messages.
+	 */
+	public int size() {
+		return msgs.size();
+	}
+
+	private static MsgRefs indexMsg(MsgNode msgNode) {
+		Map<String, String> placeholders = new HashMap<>();
+		Map<String, String> switches = new HashMap<>();
+		Set<String> ambiguousPlaceholders = new HashSet<>();
+		Set<String> ambiguousSwitches = new HashSet<>();
+
+		msgNode.getVarNameToRepNodeMap().forEach((name, node) -> {
+			if (node instanceof MsgPluralNode pluralNode) {
+				addRef(switches, ambiguousSwitches, name, name);
+				addRef(switches, ambiguousSwitches, sourceVarName(pluralNode.getExpr()), name);
+			} else if (node instanceof MsgSelectNode selectNode) {
+				addRef(switches, ambiguousSwitches, name, name);
+				addRef(switches, ambiguousSwitches, sourceVarName(selectNode.getExpr()), name);
+			} else if (node instanceof MsgPlaceholderNode placeholderNode) {
+				addRef(placeholders, ambiguousPlaceholders, name, name);
+				SoyNode initialNode = placeholderNode.numChildren() == 1 ? placeholderNode.getChild(0) : null;
+				if (initialNode instanceof PrintNode printNode) {
+					addRef(placeholders, ambiguousPlaceholders, sourceVarName(printNode.getExpr()), name);
+				}
+			}
+		});
+
+		ambiguousPlaceholders.forEach(placeholders::remove);
+		ambiguousSwitches.forEach(switches::remove);
+		return new MsgRefs(ImmutableMap.copyOf(placeholders), ImmutableMap.copyOf(switches));
+	}
+
+	private static void addRef(Map<String, String> refs, Set<String> ambiguous, String ref, String name) {
+		if (ref == null) {
+			return;
+		}
+		String previous = refs.putIfAbsent(ref, name);
+		if (previous != null && !previous.equals(name)) {
+			ambiguous.add(ref);
+		}
+	}
+
+	/**
+	 * @return The name (without {@code $}) of the variable if the expression is just a variable, otherwise
+	 * {@code null}.
+	 */
+	private static String sourceVarName(ExprRootNode expr) {
+		return (expr.getRoot() instanceof VarRefNode varRef) ? varRef.getNameWithoutLeadingDollar() : null;
+	}
+}
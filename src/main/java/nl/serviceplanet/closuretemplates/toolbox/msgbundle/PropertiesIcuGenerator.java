@@ -17,8 +17,10 @@ package nl.serviceplanet.closuretemplates.toolbox.msgbundle;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.io.ByteSink;
-import com.google.common.io.Files;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CharSource;
 import com.google.template.soy.SoyFileSet;
+import com.google.template.soy.error.ErrorReporter;
 import com.google.template.soy.msgs.SoyMsgBundle;
 import com.google.template.soy.msgs.SoyMsgBundleHandler;
 import com.google.template.soy.msgs.SoyMsgPlugin;
@@ -29,14 +31,24 @@ import com.google.template.soy.msgs.restricted.SoyMsgPlaceholderPart;
 import com.google.template.soy.msgs.restricted.SoyMsgPluralPart;
 import com.google.template.soy.msgs.restricted.SoyMsgRawTextPart;
 import com.google.template.soy.msgs.restricted.SoyMsgSelectPart;
+import nl.serviceplanet.closuretemplates.toolbox.msgbundle.util.TextUtil;
 
-import java.io.File;
 import java.io.IOException;
-import java.lang.reflect.InvocationTargetException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Method;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 public final class PropertiesIcuGenerator {
 
@@ -51,44 +63,177 @@ public final class PropertiesIcuGenerator {
 	 */
 	public static CharSequence generateProperties(SoyMsgBundle msgBundle) {
 		StringBuilder properties = new StringBuilder();
+		try {
+			generateProperties(msgBundle, properties);
+		} catch (IOException exc) {
+			throw new AssertionError("StringBuilder does not throw IOException", exc);
+		}
+		return properties.toString();
+	}
+
+	/**
+	 * Generates a Java properties file with ICU message format style messages, writing every message to the output as
+	 * soon as it is converted. The messages are ordered by id, so the same templates always produce the same output.
+	 * <br /><br />
+	 * All messages are checked before anything is written, so an invalid message does not leave a partial file behind.
+	 */
+	public static void generateProperties(SoyMsgBundle msgBundle, Appendable properties) throws IOException {
+		List<SoyMsg> soyMsgs = sortedById(msgBundle);
+		soyMsgs.forEach(PropertiesIcuGenerator::checkMessage);
+
+		appendHeader(properties);
+		for (SoyMsg soyMsg : soyMsgs) {
+			appendCheckedMessage(soyMsg, properties);
+		}
+	}
+
+	/**
+	 * Generates one properties file (shard) per Soy namespace into the directory, plus the index which maps every
+	 * message id to its shard, see {@link ShardedSoyMsgBundle}. A message which is used in several namespaces ends up in
+	 * the shard of {@link #shardOf(Iterable)}.
+	 */
+	public static void generateShardedProperties(SoyMsgBundle msgBundle, Path directory) throws IOException {
+		Map<String, List<SoyMsg>> msgsByShard = new TreeMap<>();
+		for (SoyMsg soyMsg : sortedById(msgBundle)) {
+			checkMessage(soyMsg);
+			List<String> namespaces = new ArrayList<>();
+			for (SoyMsg.SourceLocationAndTemplate source : soyMsg.getSourceLocations()) {
+				namespaces.add(namespaceOfTemplate(source.template()));
+			}
+			msgsByShard.computeIfAbsent(shardOf(namespaces), shard -> new ArrayList<>()).add(soyMsg);
+		}
+
+		Files.createDirectories(directory);
+		try (Writer index = Files.newBufferedWriter(directory.resolve(ShardedSoyMsgBundle.INDEX_FILE_NAME), StandardCharsets.UTF_8)) {
+			appendHeader(index);
+			for (Map.Entry<String, List<SoyMsg>> shard : msgsByShard.entrySet()) {
+				Path shardFile = directory.resolve(ShardedSoyMsgBundle.shardFileName(shard.getKey()));
+				try (Writer properties = Files.newBufferedWriter(shardFile, StandardCharsets.UTF_8)) {
+					appendHeader(properties);
+					for (SoyMsg soyMsg : shard.getValue()) {
+						appendCheckedMessage(soyMsg, properties);
+						appendShardIndexEntry(soyMsg.getId(), shard.getKey(), index);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Appends the line of a message to the index of a sharded bundle.
+	 */
+	public static void appendShardIndexEntry(long msgId, String shard, Appendable index) throws IOException {
+		index.append(Long.toString(msgId));
+		index.append('=');
+		index.append(shard);
+		index.append(LINE_BREAK);
+	}
+
+	private static List<SoyMsg> sortedById(SoyMsgBundle msgBundle) {
+		List<SoyMsg> soyMsgs = new ArrayList<>(msgBundle.getNumMsgs());
+		msgBundle.forEach(soyMsgs::add);
+		soyMsgs.sort(Comparator.comparingLong(SoyMsg::getId));
+		return soyMsgs;
+	}
+
+	/**
+	 * Shard of a message which is used in templates of the given namespaces: the first namespace in alphabetical
+	 * order, so the shard does not depend on the order in which the templates are found.
+	 * {@link ShardedSoyMsgBundle#DEFAULT_SHARD} if none of the namespaces is known ({@code null}).
+	 */
+	public static String shardOf(Iterable<String> namespaces) {
+		String shard = null;
+		for (String namespace : namespaces) {
+			if (namespace != null && (shard == null || namespace.compareTo(shard) < 0)) {
+				shard = namespace;
+			}
+		}
+		return (shard == null) ? ShardedSoyMsgBundle.DEFAULT_SHARD : shard;
+	}
+
+	/**
+	 * Namespace of a fully qualified template name (the namespace of the Soy file it is declared in), {@code null} if
+	 * the name has no namespace.
+	 */
+	public static String namespaceOfTemplate(String templateName) {
+		String namespace = TextUtil.beforeLast(templateName, ".");
+		return (namespace == null || namespace.isEmpty()) ? null : namespace;
+	}
 
+	/**
+	 * Appends the comment with which every generated properties file starts.
+	 */
+	public static void appendHeader(Appendable properties) throws IOException {
 		properties.append("# WARNING! AUTO-GENERATED BY ");
 		properties.append(PropertiesIcuGenerator.class.getName());
 		properties.append(LINE_BREAK);
 		properties.append("# N.B.: THIS FILE MUST BE REGENERATED UPON **ANY** CHANGE IN THE TEMPLATE.");
 		properties.append(LINE_BREAK);
+	}
 
-		for (SoyMsg soyMsg : msgBundle) {
-			properties.append(LINE_BREAK);
-
-			String desc = soyMsg.getDesc();
-			if (desc != null && !desc.isBlank()) {
-				if (!desc.trim().equals(desc)) {
-					throw new IllegalStateException("Ensure that msg[" + soyMsg.getId() + "].desc is trimmed, found: '" + desc + "'");
-				}
-
-				properties.append("# ");
-				properties.append(desc);
-				properties.append(LINE_BREAK);
-			}
+	/**
+	 * Appends a single message: an empty line, the description of the message as comment (if any) and the property.
+	 * The message is checked before anything is appended.
+	 */
+	public static void appendMessage(SoyMsg soyMsg, Appendable properties) throws IOException {
+		checkMessage(soyMsg);
+		appendCheckedMessage(soyMsg, properties);
+	}
 
-			String propValue = convertSoyMsgToPropertyValue(soyMsg);
-			if (propValue.contains("\n") || propValue.contains("\r")) {
-				throw new IllegalStateException("Ensure that msg[" + soyMsg.getId() + "].desc '" + desc + "' does not contain new-lines, found: '" + propValue + "'");
-			}
+	private static void appendCheckedMessage(SoyMsg soyMsg, Appendable properties) throws IOException {
+		properties.append(LINE_BREAK);
 
-			properties.append(soyMsg.getId());
-			properties.append("=");
-			properties.append(propValue);
+		String desc = soyMsg.getDesc();
+		if (desc != null && !desc.isBlank()) {
+			properties.append("# ");
+			properties.append(desc);
 			properties.append(LINE_BREAK);
 		}
 
-		return properties.toString();
+		properties.append(Long.toString(soyMsg.getId()));
+		properties.append('=');
+		appendPropertyValue(soyMsg, properties);
+		properties.append(LINE_BREAK);
+	}
+
+	/**
+	 * Checks that the message can be written as a property: a trimmed description and no line breaks (which would end
+	 * the property) in its text, including the text of the cases of plural and select parts.
+	 */
+	private static void checkMessage(SoyMsg soyMsg) {
+		String desc = soyMsg.getDesc();
+		if (desc != null && !desc.isBlank() && !desc.trim().equals(desc)) {
+			throw new IllegalStateException("Ensure that msg[" + soyMsg.getId() + "].desc is trimmed, found: '" + desc + "'");
+		}
+		checkParts(soyMsg, soyMsg.getParts());
 	}
 
-	private static String convertSoyMsgToPropertyValue(SoyMsg soyMsg) {
-		StringBuilder val = new StringBuilder();
+	private static void checkParts(SoyMsg soyMsg, List<SoyMsgPart> soyMsgParts) {
+		for (SoyMsgPart soyMsgPart : soyMsgParts) {
+			if (soyMsgPart instanceof SoyMsgRawTextPart rawTextPart) {
+				String rawText = rawTextPart.getRawText();
+				for (int i = 0; i < rawText.length(); i++) {
+					char c = rawText.charAt(i);
+					if (c == '\n' || c == '\r') {
+						throw new IllegalStateException("Ensure that msg[" + soyMsg.getId() + "].desc '" + soyMsg.getDesc() + "' does not contain new-lines, found: '" + rawText + "'");
+					}
+				}
+			} else if (soyMsgPart instanceof SoyMsgPluralPart pluralPart) {
+				for (SoyMsgPart.Case<?> pluralCase : pluralPart.getCases()) {
+					checkParts(soyMsg, pluralCase.parts());
+				}
+			} else if (soyMsgPart instanceof SoyMsgSelectPart selectPart) {
+				for (SoyMsgPart.Case<?> selectCase : selectPart.getCases()) {
+					checkParts(soyMsg, selectCase.parts());
+				}
+			}
+		}
+	}
 
+	/**
+	 * Appends the message in ICU syntax, the message must have been checked by {@link #checkMessage(SoyMsg)}.
+	 */
+	private static void appendPropertyValue(SoyMsg soyMsg, Appendable val) throws IOException {
 		// Converts all plural, plural remainder and select parts to ICU syntax in Soy raw text.
 		ImmutableList<SoyMsgPart> soyMsgParts = IcuSyntaxUtils.convertMsgPartsToEmbeddedIcuSyntax(soyMsg.getParts());
 
@@ -96,7 +241,7 @@ public final class PropertiesIcuGenerator {
 			if (soyMsgPart instanceof SoyMsgRawTextPart) {
 				val.append(((SoyMsgRawTextPart) soyMsgPart).getRawText());
 			} else if (soyMsgPart instanceof SoyMsgPlaceholderPart) {
-				val.append("#");
+				val.append('#');
 			} else if (soyMsgPart instanceof SoyMsgPluralPart ||
 					soyMsgPart.getClass().getName().endsWith("PluralRemainderPart") ||
 					soyMsgPart instanceof SoyMsgSelectPart) {
@@ -106,69 +251,89 @@ public final class PropertiesIcuGenerator {
 				throw new RuntimeException(String.format("Encountered unknown Soy message part: '%s'.", soyMsgPart));
 			}
 		}
-
-		return val.toString();
 	}
 
+	/**
+	 * @param propertiesFileContent The generated properties file.
+	 * @param msgBundle             The messages as extracted from the templates.
+	 */
 	public record SoyMsgBundleDefinition(String propertiesFileContent, SoyMsgBundle msgBundle) {
 	}
 
+	/**
+	 * Extracts the messages of the templates and generates the properties file for them. Everything happens in
+	 * memory: nothing is written to disk and the generated file is not parsed again.
+	 */
 	public static SoyMsgBundleDefinition extractSoyMsgBundleFromFileSet(
 			SoyFileSet soyFileSet,
 			SoyMsgBundleHandler.OutputFileOptions options
 	) {
-		SoyMsgPlugin plugin = new PropertiesIcuMsgPlugin();
+		CapturingMsgPlugin plugin = new CapturingMsgPlugin();
 		SoyMsgBundleHandler handler = new SoyMsgBundleHandler(plugin);
+		ByteSink discardingSink = new ByteSink() {
+			@Override
+			public OutputStream openStream() {
+				return ByteStreams.nullOutputStream();
+			}
+		};
 
-		File outputFile;
 		try {
-			outputFile = File.createTempFile("soy-bundle", ".properties");
-		} catch (IOException e) {
-			throw new IllegalStateException("Failed to create temp-file");
+			ExtractAndWriteMsgs.METHOD.invokeExact(soyFileSet, handler, options, discardingSink);
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new IllegalStateException("Failed to create SoyMsgBundle from SoyFileSet", e);
 		}
 
-		try {
-			getInternalMethodForSoyMsgExtractor(soyFileSet).invoke(
-					soyFileSet,
-					handler,
-					options,
-					Files.asByteSink(outputFile)
-			);
-
-			SoyMsgBundle soyMsgBundle;
-			try {
-				soyMsgBundle = handler.createFromFile(outputFile);
-			} catch (Exception exc) {
-				soyMsgBundle = null;
+		if (plugin.extractedMsgBundle == null) {
+			throw new IllegalStateException("Soy did not extract a SoyMsgBundle from the SoyFileSet");
+		}
+		return new SoyMsgBundleDefinition(plugin.generatedProperties.toString(), plugin.extractedMsgBundle);
+	}
 
-				exc.printStackTrace(); // FIXME
-			}
+	/**
+	 * Plugin which keeps the extracted bundle and the file generated for it, so neither has to be read back from the
+	 * output. Only used for a single extraction.
+	 */
+	private static final class CapturingMsgPlugin implements SoyMsgPlugin {
+		private SoyMsgBundle extractedMsgBundle;
+		private CharSequence generatedProperties;
 
-			return new SoyMsgBundleDefinition(
-					Files.asCharSource(outputFile, StandardCharsets.UTF_8).read(),
-					soyMsgBundle
-			);
-		} catch (NoSuchMethodException | InvocationTargetException | IllegalAccessException | IOException e) {
-			throw new IllegalStateException("Failed to create SoyMsgBundle from SoyFileSet", e);
-		} finally {
-			if (!outputFile.delete()) {
-				throw new IllegalStateException("Failed to delete temp-file");
-			}
+		@Override
+		public CharSequence generateExtractedMsgsFile(SoyMsgBundle msgBundle,
+													  SoyMsgBundleHandler.OutputFileOptions options,
+													  ErrorReporter errorReporter) {
+			extractedMsgBundle = msgBundle;
+			generatedProperties = generateProperties(msgBundle);
+			return generatedProperties;
+		}
+
+		@Override
+		public SoyMsgBundle parseTranslatedMsgsFile(CharSource charSource) throws IOException {
+			return PropertiesIcuParser.parseIcuMsgsPropertiesFile(charSource);
 		}
 	}
 
-	private static Method getInternalMethodForSoyMsgExtractor(SoyFileSet soyFileSet) throws NoSuchMethodException {
-		// use non-public method, normally called by:
-		// 		main-class: SoyMsgExtractor
-		// this code needs to be independent of a command-line utility.
+	/**
+	 * Handle to the non-public {@code SoyFileSet.extractAndWriteMsgs(...)}, normally called by the command-line
+	 * utility SoyMsgExtractor. Looked up once, on first use.
+	 */
+	private static final class ExtractAndWriteMsgs {
+		private static final MethodHandle METHOD = find();
 
-		Method method = soyFileSet.getClass().getDeclaredMethod(
-				"extractAndWriteMsgs",
-				SoyMsgBundleHandler.class,
-				SoyMsgBundleHandler.OutputFileOptions.class,
-				ByteSink.class
-		);
-		method.setAccessible(true);
-		return method;
+		private static MethodHandle find() {
+			try {
+				Method method = SoyFileSet.class.getDeclaredMethod(
+						"extractAndWriteMsgs",
+						SoyMsgBundleHandler.class,
+						SoyMsgBundleHandler.OutputFileOptions.class,
+						ByteSink.class
+				);
+				method.setAccessible(true);
+				return MethodHandles.lookup().unreflect(method);
+			} catch (NoSuchMethodException | IllegalAccessException e) {
+				throw new IllegalStateException("Failed to find SoyFileSet.extractAndWriteMsgs(...)", e);
+			}
+		}
 	}
 }
@@ -16,17 +16,57 @@
 package nl.serviceplanet.closuretemplates.toolbox.msgbundle;
 
 import com.google.common.io.CharSource;
-import com.google.errorprone.annotations.Immutable;
 import com.google.template.soy.error.ErrorReporter;
 import com.google.template.soy.msgs.SoyMsgBundle;
 import com.google.template.soy.msgs.SoyMsgBundleHandler;
 import com.google.template.soy.msgs.SoyMsgPlugin;
 
 import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
 
-@Immutable
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * {@link SoyMsgPlugin} for ICU properties files. Thread-safe, the {@link PlaceholderIndex} is not modified after it
+ * is built.
+ */
 public final class PropertiesIcuMsgPlugin implements SoyMsgPlugin {
 
+	/**
+	 * How translated files are parsed.
+	 */
+	public enum ParseMode {
+		/** Parse line by line while reading the file, without holding the entire file in memory. */
+		STREAMING,
+		/**
+		 * Parse line-aligned chunks of the file on the common {@link ForkJoinPool}. This requires reading the entire
+		 * file into memory first, so it only pays off for large files.
+		 */
+		PARALLEL,
+		/** Only split the file into message ids and raw ICU messages, see {@link LazyPropertiesIcuMsgBundle}. */
+		LAZY
+	}
+
+	private final ParseMode parseMode;
+	private final PlaceholderIndex placeholderIndex;
+
+	public PropertiesIcuMsgPlugin() {
+		this(ParseMode.STREAMING);
+	}
+
+	public PropertiesIcuMsgPlugin(ParseMode parseMode) {
+		this(parseMode, PlaceholderIndex.EMPTY);
+	}
+
+	/**
+	 * @param placeholderIndex Index of the templates the translated files belong to, see
+	 *                         {@link PlaceholderIndex#fromFileSet(com.google.template.soy.SoyFileSet)}.
+	 */
+	public PropertiesIcuMsgPlugin(ParseMode parseMode, PlaceholderIndex placeholderIndex) {
+		this.parseMode = checkNotNull(parseMode, "parseMode");
+		this.placeholderIndex = checkNotNull(placeholderIndex, "placeholderIndex");
+	}
+
 	@Override
 	public CharSequence generateExtractedMsgsFile(SoyMsgBundle msgBundle,
 												  SoyMsgBundleHandler.OutputFileOptions options,
@@ -36,6 +76,10 @@ public final class PropertiesIcuMsgPlugin implements SoyMsgPlugin {
 
 	@Override
 	public SoyMsgBundle parseTranslatedMsgsFile(CharSource charSource) throws IOException {
-		return PropertiesIcuParser.parseIcuMsgsPropertiesFile(charSource.read());
+		return switch (parseMode) {
+			case STREAMING -> PropertiesIcuParser.parseIcuMsgsPropertiesFile(charSource, placeholderIndex);
+			case PARALLEL -> PropertiesIcuParser.parseIcuMsgsPropertiesFileInParallel(charSource, ForkJoinPool.commonPool(), placeholderIndex);
+			case LAZY -> LazyPropertiesIcuMsgBundle.load(charSource, placeholderIndex);
+		};
 	}
 }
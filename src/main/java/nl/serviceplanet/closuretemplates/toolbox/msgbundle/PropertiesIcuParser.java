@@ -16,257 +16,231 @@
 package nl.serviceplanet.closuretemplates.toolbox.msgbundle;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.io.CharSource;
 import com.google.template.soy.msgs.SoyMsgBundle;
 import com.google.template.soy.msgs.SoyMsgException;
 import com.google.template.soy.msgs.restricted.SoyMsg;
-import com.google.template.soy.msgs.restricted.SoyMsgBundleImpl;
 import com.google.template.soy.msgs.restricted.SoyMsgPart;
-import com.google.template.soy.msgs.restricted.SoyMsgPlaceholderPart;
-import com.google.template.soy.msgs.restricted.SoyMsgPluralCaseSpec;
 import com.google.template.soy.msgs.restricted.SoyMsgPluralPart;
-import com.google.template.soy.msgs.restricted.SoyMsgRawTextPart;
 import com.google.template.soy.msgs.restricted.SoyMsgSelectPart;
-import nl.serviceplanet.closuretemplates.toolbox.msgbundle.icu.MessageFormatTokenType;
 import nl.serviceplanet.closuretemplates.toolbox.msgbundle.util.TextUtil;
-import nl.serviceplanet.closuretemplates.toolbox.msgbundle.icu.MessageFormatLexer;
-import nl.serviceplanet.closuretemplates.toolbox.msgbundle.icu.MessageFormatToken;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Scanner;
-
-import static com.google.common.base.Preconditions.checkArgument;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 public final class PropertiesIcuParser {
 	//	private static final Logger log = LoggerFactory.getLogger(PropertiesIcuParser.class);
 
+	/**
+	 * Size (in characters) below which a part of a properties file is no longer split when parsing in parallel.
+	 */
+	private static final int PARALLEL_CHUNK_SIZE = 64 * 1024;
+
 	private PropertiesIcuParser() {
 		// Not intended to be instantiated.
 	}
 
-	static SoyMsgBundle parseIcuMsgsPropertiesFile(String propertyIcuMsgs) {
-		List<SoyMsg> messages = new ArrayList<>();
-
-		try (Scanner scanner = new Scanner(propertyIcuMsgs)) {
-			while (scanner.hasNext()) {
-				SoyMsg msg = parseIcuMsgPropertyLine(scanner.nextLine());
-				if (msg != null) {
-					messages.add(msg);
-				}
-			}
-		}
-
-		return new SoyMsgBundleImpl(null, messages);
+	/**
+	 * Parses the properties file line by line while reading it. The file is never held in memory as a whole, only the
+	 * line which is currently being parsed and the resulting {@link SoyMsg}s.
+	 */
+	static SoyMsgBundle parseIcuMsgsPropertiesFile(CharSource propertyIcuMsgs) throws IOException {
+		return parseIcuMsgsPropertiesFile(propertyIcuMsgs, PlaceholderIndex.EMPTY);
 	}
 
-	private static SoyMsg parseIcuMsgPropertyLine(String line) {
-		line = line.stripLeading();
-		if (line.startsWith("#")) {
-			return null;
+	/**
+	 * Like {@link #parseIcuMsgsPropertiesFile(CharSource)}, resolving the references in the messages through the
+	 * index.
+	 */
+	static SoyMsgBundle parseIcuMsgsPropertiesFile(CharSource propertyIcuMsgs, PlaceholderIndex placeholderIndex) throws IOException {
+		try (BufferedReader reader = propertyIcuMsgs.openBufferedStream()) {
+			return parseIcuMsgsPropertiesFile(reader, placeholderIndex);
 		}
-
-		List<String> keyValPair = TextUtil.splitWithoutRegex(line, "=", 2);
-		if (keyValPair.size() < 2) {
-			return null;
-		}
-
-		String key = keyValPair.get(0);
-		String val = keyValPair.get(1);
-
-		long msgId;
-		try {
-			msgId = Long.parseLong(key);
-		} catch (NumberFormatException e) {
-			throw new SoyMsgException(String.format("Invalid message id '%s' could not have been generated by the Soy compiler.", key), e);
-		}
-
-		ImmutableList<MessageFormatToken> icuMessageTokens = new MessageFormatLexer(val).tokenize();
-		ImmutableList<SoyMsgPart> soyMsgParts = convertToSoyMsgParts(icuMessageTokens);
-
-		if (soyMsgParts.size() > 1) {
-			throw new IllegalStateException("Soy {msg}-element can have only 1 root-child, found " + soyMsgParts.size() + " for icu-definition: '" + line + "'");
-		}
-
-		return SoyMsg.builder()
-				.setId(msgId)
-				.setParts(soyMsgParts)
-				.build();
 	}
 
-	private static ImmutableList<SoyMsgPart> convertToSoyMsgParts(List<MessageFormatToken> icuMessageTokens) {
-		ImmutableList.Builder<SoyMsgPart> soyMsgParts = ImmutableList.builderWithExpectedSize(icuMessageTokens.size());
-
-		for (MessageFormatToken icuMessageToken : icuMessageTokens) {
-			SoyMsgPart soyMsgPart = switch (icuMessageToken.type()) {
-				case TEXT -> SoyMsgRawTextPart.of(icuMessageToken.value());
-				case PLACEHOLDER -> new SoyMsgPlaceholderPart(convertIcuRefToSoyPlaceholderName(
-						icuMessageToken.value(), icuMessageToken.type())
-				);
-				case SELECT, PLURAL -> createSoyMsgSwitchBlock(icuMessageToken);
-				case EOF -> null;
-				default -> throw new SoyMsgException(String.format("Unknown ICU token: '%s'.", icuMessageToken));
-			};
-
-			if (soyMsgPart != null) {
-				soyMsgParts.add(soyMsgPart);
+	/**
+	 * Parses the properties file from the given reader. The reader is consumed but not closed.
+	 */
+	static SoyMsgBundle parseIcuMsgsPropertiesFile(Reader propertyIcuMsgs, PlaceholderIndex placeholderIndex) throws IOException {
+		BufferedReader reader = (propertyIcuMsgs instanceof BufferedReader bufferedReader)
+				? bufferedReader
+				: new BufferedReader(propertyIcuMsgs);
+
+		LongMapSoyMsgBundle.Builder msgBundle = LongMapSoyMsgBundle.builder(null);
+		for (String line; (line = reader.readLine()) != null; ) {
+			SoyMsg msg = parseIcuMsgPropertyLine(line, placeholderIndex);
+			if (msg != null) {
+				msgBundle.add(msg);
 			}
 		}
 
-		return soyMsgParts.build();
+		return msgBundle.build();
 	}
 
-	public record SwitchCase<T>(String caseSelector, T caseYieldExpr) {
+	/**
+	 * Parses the properties file by splitting it into line-aligned chunks which are parsed on the given pool. Unlike
+	 * {@link #parseIcuMsgsPropertiesFile(CharSource)} this needs the entire file in memory. The messages end up in
+	 * the bundle in file order, so the result does not depend on the parallelism of the pool.
+	 */
+	static SoyMsgBundle parseIcuMsgsPropertiesFileInParallel(CharSource propertyIcuMsgs, ForkJoinPool pool) throws IOException {
+		return parseIcuMsgsPropertiesFileInParallel(propertyIcuMsgs.read(), pool, PlaceholderIndex.EMPTY);
 	}
 
+	static SoyMsgBundle parseIcuMsgsPropertiesFileInParallel(CharSource propertyIcuMsgs, ForkJoinPool pool, PlaceholderIndex placeholderIndex) throws IOException {
+		return parseIcuMsgsPropertiesFileInParallel(propertyIcuMsgs.read(), pool, placeholderIndex);
+	}
 
-	private static SoyMsgPart createSoyMsgSwitchBlock(MessageFormatToken messageFormatToken) {
-		// examples for select/plural:
-		//    {gender,select,male{He uses}female{She uses}other{They use}}
-		//    {productCount,plural,=0{You have no products.}=1{You have one product.}other{You have # products.}}
-		// notice that, after 'select/plural', we have a sequence of pairs of [text, placeholder]
-
-		String switchBlockDef = TextUtil.extractWrappedText(messageFormatToken.value(), "{", "}");
-		List<String> parts = TextUtil.splitWithoutRegex(switchBlockDef, ",", 3);
-		checkArgument(parts.size() == 3, messageFormatToken.type() + " switch-block must have format {ref,switch-type,switch-cases-expr}");
+	static SoyMsgBundle parseIcuMsgsPropertiesFileInParallel(CharSequence propertyIcuMsgs, ForkJoinPool pool, PlaceholderIndex placeholderIndex) {
+		List<SoyMsg> messages = pool.invoke(new ParseLinesTask(propertyIcuMsgs, placeholderIndex, 0, propertyIcuMsgs.length()));
 
-		String ref = parts.get(0).trim();
-		String type = parts.get(1).trim();
-		String expr = parts.get(2).trim();
+		LongMapSoyMsgBundle.Builder msgBundle = LongMapSoyMsgBundle.builder(null);
+		messages.forEach(msgBundle::add);
+		return msgBundle.build();
+	}
 
-		if (MessageFormatTokenType.valueOf(type.toUpperCase()) != messageFormatToken.type()) {
-			throw new AssertionError();
+	/**
+	 * Parses the lines in {@code [start, end)}, where both {@code start} and {@code end} are at the start of a line (or
+	 * the end of the file). Large ranges are split in two at a line boundary and parsed in parallel.
+	 */
+	private static final class ParseLinesTask extends RecursiveTask<List<SoyMsg>> {
+		private final CharSequence propertyIcuMsgs;
+		private final PlaceholderIndex placeholderIndex;
+		private final int start;
+		private final int end;
+
+		private ParseLinesTask(CharSequence propertyIcuMsgs, PlaceholderIndex placeholderIndex, int start, int end) {
+			this.propertyIcuMsgs = propertyIcuMsgs;
+			this.placeholderIndex = placeholderIndex;
+			this.start = start;
+			this.end = end;
 		}
 
-		String placeHolderName = convertIcuRefToSoyPlaceholderName(ref, messageFormatToken.type());
-		List<SwitchCase<?>> icuSwitchCases = parseIcuSwitchCases(expr, type);
-		List<SwitchCase<List<SoyMsgPart>>> soySwitchCase = convertIcuSwitchCasesToSoy(icuSwitchCases, placeHolderName);
-
-		// convert switch-cases to one SoyMsgPart
-		return switch (type.toLowerCase()) {
-			case "select" -> new SoyMsgSelectPart(
-					placeHolderName,
-					soySwitchCase
-							.stream()
-							.map(switchCase -> SoyMsgPart.Case.create(
-											convertCaseSelectorForSoySelect(switchCase.caseSelector()),
-											switchCase.caseYieldExpr()
-									)
-							)
-							.toList());
-			case "plural" -> new SoyMsgPluralPart(
-					placeHolderName,
-					0,
-					soySwitchCase
-							.stream()
-							.map(switchCase -> SoyMsgPart.Case.create(
-											convertCaseSelectorForSoyPlural(switchCase.caseSelector()),
-											switchCase.caseYieldExpr()
-									)
-							)
-							.toList());
-			default -> throw new AssertionError("Unsupported switch-type: '" + type + "'");
-		};
-	}
+		@Override
+		protected List<SoyMsg> compute() {
+			if (end - start > PARALLEL_CHUNK_SIZE) {
+				int split = startOfNextLine(propertyIcuMsgs, start + (end - start) / 2, end);
+				if (split < end) {
+					ParseLinesTask head = new ParseLinesTask(propertyIcuMsgs, placeholderIndex, start, split);
+					ParseLinesTask tail = new ParseLinesTask(propertyIcuMsgs, placeholderIndex, split, end);
+					head.fork();
+					List<SoyMsg> tailMessages = tail.compute();
+					List<SoyMsg> messages = head.join();
+					messages.addAll(tailMessages);
+					return messages;
+				}
+			}
 
-	private static List<SwitchCase<?>> parseIcuSwitchCases(String expr, String type) {
-		List<MessageFormatToken> parts = new MessageFormatLexer(expr)
-				.tokenize()
-				.stream()
-				.filter(e -> e.type() != MessageFormatTokenType.EOF)
-				.toList();
-		if (parts.size() % 2 != 0) {
-			throw new IllegalStateException("switch-block." + type + ".pair-sequence must have an even number of elements, expr=" + expr);
+			List<SoyMsg> messages = new ArrayList<>();
+			int lineStart = start;
+			while (lineStart < end) {
+				int lineEnd = startOfNextLine(propertyIcuMsgs, lineStart, end);
+				SoyMsg msg = parseIcuMsgPropertyLine(stripLineBreak(propertyIcuMsgs, lineStart, lineEnd), placeholderIndex);
+				if (msg != null) {
+					messages.add(msg);
+				}
+				lineStart = lineEnd;
+			}
+			return messages;
 		}
 
-		List<SwitchCase<?>> cases = new ArrayList<>();
-		for (int i = 0; i < parts.size(); i += 2) {
-			MessageFormatToken k = parts.get(i);
-			MessageFormatToken v = parts.get(i + 1); // cannot go out of bounds
-
-			int pairNr = (i / 2);
-			if (k.type() != MessageFormatTokenType.TEXT) {
-				throw new IllegalStateException("switch-block." + type + ".pair[" + pairNr + "].key must be TEXT, expr=" + expr);
+		/**
+		 * Lines end with {@code '\n'}, {@code '\r'} or {@code "\r\n"}, like {@link BufferedReader#readLine()}. A range
+		 * never ends between the {@code '\r'} and {@code '\n'} of a line break, as every range ends at a position returned
+		 * by this method.
+		 */
+		private static int startOfNextLine(CharSequence text, int from, int end) {
+			for (int i = from; i < end; i++) {
+				char current = text.charAt(i);
+				if (current == '\n') {
+					return i + 1;
+				}
+				if (current == '\r') {
+					return (i + 1 < end && text.charAt(i + 1) == '\n') ? i + 2 : i + 1;
+				}
 			}
+			return end;
+		}
 
-			cases.add(
-					switch (v.type()) {
-						case PLACEHOLDER -> new SwitchCase<>(k.value().trim(), v.value().trim());
-						case SELECT, PLURAL -> new SwitchCase<>(k.value().trim(), convertToSoyMsgParts(
-								new MessageFormatLexer(
-										TextUtil.extractWrappedText(v.value().trim(), "{", "}")
-								).tokenize()
-						));
-						default ->
-								throw new IllegalStateException("switch-block." + type + ".pair[" + pairNr + "].val unexpected type found: " + v.type() + ", expr=" + expr);
-					}
-			);
+		private static String stripLineBreak(CharSequence text, int lineStart, int lineEnd) {
+			if (lineEnd > lineStart && text.charAt(lineEnd - 1) == '\n') {
+				lineEnd--;
+			}
+			if (lineEnd > lineStart && text.charAt(lineEnd - 1) == '\r') {
+				lineEnd--;
+			}
+			return text.subSequence(lineStart, lineEnd).toString();
 		}
-		return cases;
 	}
 
-	@SuppressWarnings("unchecked")
-	private static List<SwitchCase<List<SoyMsgPart>>> convertIcuSwitchCasesToSoy(
-			List<SwitchCase<?>> icuSwitchCases, String placeHolderName) {
-		return icuSwitchCases.stream()
-				.map(switchCase -> new SwitchCase<>(switchCase.caseSelector(),
-						(switchCase.caseYieldExpr() instanceof String caseYieldString)
-								? convertIcuExpressionToSoyMsgParts(TextUtil.extractWrappedText(caseYieldString, "{", "}"), placeHolderName)
-								: (List<SoyMsgPart>) switchCase.caseYieldExpr()
-				))
-				.toList();
+	/**
+	 * Message id and (unparsed) ICU message of a single line of a properties file.
+	 */
+	record IcuMsgProperty(long msgId, String icuMessage) {
 	}
 
-	private static SoyMsgPluralCaseSpec convertCaseSelectorForSoyPlural(String caseSelector) {
-		// =0, =1, =17, ..., zero, one, two, few, many, other
-		if (caseSelector.startsWith("=")) {
-			return new SoyMsgPluralCaseSpec(Long.parseLong(TextUtil.after(caseSelector, "=")));
+	private static SoyMsg parseIcuMsgPropertyLine(String line, PlaceholderIndex placeholderIndex) {
+		IcuMsgProperty property = parseIcuMsgProperty(line);
+		if (property == null) {
+			return null;
 		}
-		// N.B.: the value 'other' in ICU correctly maps to Soy's default-case.
-		return SoyMsgPluralCaseSpec.forType(caseSelector);
+		return parseIcuMsg(property.msgId(), property.icuMessage(), placeholderIndex);
 	}
 
-	private static String convertCaseSelectorForSoySelect(String caseSelector) {
-		// N.B.: the value 'other' in ICU does NOT map to the default-case.
-		if ("other".equals(caseSelector)) {
-			return null; // use null, as it triggers Soy's default-case.
+	/**
+	 * Splits a line of a properties file into the message id and the ICU message, without parsing the message.
+	 *
+	 * @return {@code null} if the line is a comment or does not contain a property.
+	 */
+	static IcuMsgProperty parseIcuMsgProperty(String line) {
+		line = line.stripLeading();
+		if (line.startsWith("#")) {
+			return null;
 		}
-		return caseSelector;
-	}
 
-	private static List<SoyMsgPart> convertIcuExpressionToSoyMsgParts(String text, String placeHolderName) {
-		// "You have # products." -> ["You have ", placeHolderName, "products."]
-		List<SoyMsgPart> parts = new ArrayList<>();
-		for (String segment : TextUtil.splitWithoutRegex(text, "#")) {
-			if (!parts.isEmpty()) {
-				parts.add(new SoyMsgPlaceholderPart(placeHolderName));
-			}
-			parts.add(SoyMsgRawTextPart.of(segment));
+		int separator = TextUtil.indexOf(line, '=', 0, line.length());
+		if (separator == -1) {
+			return null;
 		}
-		return parts;
+
+		long msgId;
+		try {
+			msgId = Long.parseLong(line, 0, separator, 10);
+		} catch (NumberFormatException e) {
+			throw new SoyMsgException(String.format("Invalid message id '%s' could not have been generated by the Soy compiler.", line.substring(0, separator)), e);
+		}
+
+		return new IcuMsgProperty(msgId, line.substring(separator + 1));
 	}
 
-	private static String convertIcuRefToSoyPlaceholderName(String icuRef, MessageFormatTokenType type) {
-		// Soy turns variable 'productCount' into PlaceholderName 'PRODUCT_COUNT_1'.
-		// This has nothing to do with ICU, this seems to be how Soy internally
-		// handles placeholders, and the i18n MsgBundle has to align with this.
-		//
-		// Note that IcuSyntaxUtils.convertMsgPartsToEmbeddedIcuSyntax(...)
-		// does NOT do the opposite, so it's truly unrelated to ICU.
-		//
-		// TODO: figure out what determines the (lack of) _N suffix at runtime in Soy.
+	/**
+	 * Converts a single ICU message into a {@link SoyMsg}.
+	 */
+	static SoyMsg parseIcuMsg(long msgId, String icuMessage) {
+		return parseIcuMsg(msgId, icuMessage, PlaceholderIndex.EMPTY);
+	}
 
-		if (!TextUtil.isVariableName(icuRef)) {
-			throw new IllegalStateException("icu-ref does not seem to be an expected variable-name: '" + icuRef + "'");
-		}
+	/**
+	 * Converts a single ICU message into a {@link SoyMsg}, resolving its references through the index.
+	 */
+	static SoyMsg parseIcuMsg(long msgId, String icuMessage, PlaceholderIndex placeholderIndex) {
+		ImmutableList<SoyMsgPart> soyMsgParts = IcuMessageParser.parse(msgId, icuMessage, SoyMsgPartInterner.shared(), placeholderIndex);
 
-		if (TextUtil.isUpperSnakeCase(icuRef)) {
-			return icuRef; // assume the var-name is already correctly generated
+		if (soyMsgParts.size() > 1 && soyMsgParts.stream().anyMatch(PropertiesIcuParser::isSwitchPart)) {
+			throw new IllegalStateException("Soy {msg}-element with a select/plural can have only 1 root-child, found " + soyMsgParts.size() + " for icu-definition: '" + msgId + "=" + icuMessage + "'");
 		}
 
-		String snakeCase = TextUtil.camelCaseToUpperSnakeCase(icuRef);
-		if (type == MessageFormatTokenType.PLURAL) {
-			snakeCase += "_1";
-		}
-		return snakeCase;
+		return SoyMsg.builder()
+				.setId(msgId)
+				.setParts(soyMsgParts)
+				.build();
+	}
+
+	private static boolean isSwitchPart(SoyMsgPart soyMsgPart) {
+		return soyMsgPart instanceof SoyMsgSelectPart || soyMsgPart instanceof SoyMsgPluralPart;
 	}
 }
@@ -0,0 +1,252 @@
+/*
+ * Copyright © 2024 Service Planet Rotterdam B.V. (it@ask.serviceplanet.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.serviceplanet.closuretemplates.toolbox.msgbundle;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.google.common.hash.HashingInputStream;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.MoreFiles;
+import com.google.template.soy.msgs.SoyMsgBundle;
+import com.google.template.soy.msgs.restricted.SoyMsg;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * {@link SoyMsgBundle} backed by an ICU properties file which is reloaded when the file changes on disk.
+ * <br /><br />
+ * Changes are picked up by a daemon thread through a {@link WatchService} on the directory of the file. Any change in
+ * that directory causes the content of the file to be compared with the loaded version, so a file which is replaced
+ * through a symbolic link (like a Kubernetes ConfigMap or Secret mount, which swaps its {@code ..data} link) is
+ * reloaded as well. Only the messages whose ICU message changed (compared by message id and a 64-bit hash of the ICU
+ * message) are parsed again, the others are reused from the previous version. The new version is published with a
+ * single reference swap, so lookups never block and always see one complete version of the file. If the changed file
+ * can not be parsed, the previous version stays in use. Thread-safe.
+ */
+public final class ReloadingSoyMsgBundle extends SoyMsgBundle implements LiveSoyMsgBundle, Closeable {
+	private static final Logger log = LoggerFactory.getLogger(ReloadingSoyMsgBundle.class);
+
+	/**
+	 * Time (in milliseconds) without further changes to the file after which it is reloaded.
+	 */
+	private static final long QUIET_PERIOD_MILLIS = 200;
+
+	private static final HashFunction CONTENT_HASH = Hashing.sha256();
+	private static final HashFunction ICU_MESSAGE_HASH = Hashing.murmur3_128();
+
+	private final Path file;
+	private final PlaceholderIndex placeholderIndex;
+	private final AtomicReference<Snapshot> current;
+	private final WatchService watchService;
+	private final Thread watchThread;
+
+	/**
+	 * A version of the file: the parsed bundle, the hash of the ICU message of every message in it (in the order of the
+	 * bundle) and the hash of the entire file.
+	 */
+	private record Snapshot(LongMapSoyMsgBundle msgBundle, long[] icuMessageHashes, HashCode contentHash) {
+	}
+
+	private ReloadingSoyMsgBundle(Path file, PlaceholderIndex placeholderIndex, Snapshot initial, WatchService watchService) {
+		this.file = file;
+		this.placeholderIndex = placeholderIndex;
+		this.current = new AtomicReference<>(initial);
+		this.watchService = watchService;
+		this.watchThread = new Thread(this::watch, "soy-msg-bundle-watcher: " + file.getFileName());
+		this.watchThread.setDaemon(true);
+	}
+
+	/**
+	 * Loads the properties file and starts watching it for changes. The watcher is stopped by {@link #close()}.
+	 */
+	public static ReloadingSoyMsgBundle watch(Path file) throws IOException {
+		return watch(file, PlaceholderIndex.EMPTY);
+	}
+
+	/**
+	 * @param placeholderIndex Index through which the references in the messages are resolved when they are parsed.
+	 */
+	public static ReloadingSoyMsgBundle watch(Path file, PlaceholderIndex placeholderIndex) throws IOException {
+		checkNotNull(file, "file");
+		checkNotNull(placeholderIndex, "placeholderIndex");
+
+		Path absoluteFile = file.toAbsolutePath();
+		Snapshot initial = load(absoluteFile, placeholderIndex, null);
+
+		WatchService watchService = absoluteFile.getFileSystem().newWatchService();
+		try {
+			absoluteFile.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+					StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+		} catch (IOException | RuntimeException exc) {
+			watchService.close();
+			throw exc;
+		}
+
+		ReloadingSoyMsgBundle msgBundle = new ReloadingSoyMsgBundle(absoluteFile, placeholderIndex, initial, watchService);
+		msgBundle.watchThread.start();
+		return msgBundle;
+	}
+
+	/**
+	 * Reloads the file now, regardless of whether a change was detected.
+	 */
+	public synchronized void reload() throws IOException {
+		// Synchronized only so reloads do not overtake each other, lookups just read the current reference.
+		Snapshot next = load(file, placeholderIndex, current.get());
+		current.set(next);
+		log.info("Reloaded message bundle '{}' ({} messages).", file, next.msgBundle().getNumMsgs());
+	}
+
+	/**
+	 * Reloads the file if its content differs from the loaded version.
+	 *
+	 * @return Whether the file was reloaded.
+	 */
+	public synchronized boolean reloadIfChanged() throws IOException {
+		if (MoreFiles.asByteSource(file).hash(CONTENT_HASH).equals(current.get().contentHash())) {
+			return false;
+		}
+		reload();
+		return true;
+	}
+
+	@Override
+	public void close() throws IOException {
+		watchService.close();
+	}
+
+	/**
+	 * Always live: the messages change when the file is reloaded.
+	 */
+	@Override
+	public boolean isLive() {
+		return true;
+	}
+
+	@Override
+	public String getLocaleString() {
+		return current.get().msgBundle().getLocaleString();
+	}
+
+	@Override
+	public SoyMsg getMsg(long id) {
+		return current.get().msgBundle().getMsg(id);
+	}
+
+	@Override
+	public int getNumMsgs() {
+		return current.get().msgBundle().getNumMsgs();
+	}
+
+	/**
+	 * Iterates over the messages of the version which is current when this method is called.
+	 */
+	@Override
+	public Iterator<SoyMsg> iterator() {
+		return current.get().msgBundle().iterator();
+	}
+
+	private void watch() {
+		try {
+			while (true) {
+				drainEvents(watchService.take());
+				// Writing a file usually results in several events (truncate, write, ...). Wait until the directory
+				// has been quiet for a while, so a half-written file is not loaded.
+				for (WatchKey key; (key = watchService.poll(QUIET_PERIOD_MILLIS, TimeUnit.MILLISECONDS)) != null; ) {
+					drainEvents(key);
+				}
+
+				try {
+					reloadIfChanged();
+				} catch (IOException | RuntimeException exc) {
+					log.warn("Failed to reload message bundle '{}', keeping the previous version.", file, exc);
+				}
+			}
+		} catch (ClosedWatchServiceException exc) {
+			// close() was called.
+		} catch (InterruptedException exc) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static void drainEvents(WatchKey key) {
+		key.pollEvents();
+		key.reset();
+	}
+
+	/**
+	 * Reads the file, parsing only the messages which are not in the previous version with the same ICU message.
+	 */
+	private static Snapshot load(Path file, PlaceholderIndex placeholderIndex, Snapshot previous) throws IOException {
+		LongMapSoyMsgBundle.Builder msgBundle = LongMapSoyMsgBundle.builder(null);
+		long[] icuMessageHashes = new long[(previous == null) ? 64 : Math.max(64, previous.icuMessageHashes().length)];
+		int numMsgs = 0;
+
+		HashCode contentHash;
+		try (HashingInputStream input = new HashingInputStream(CONTENT_HASH, Files.newInputStream(file));
+			 BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+			for (String line; (line = reader.readLine()) != null; ) {
+				PropertiesIcuParser.IcuMsgProperty property = PropertiesIcuParser.parseIcuMsgProperty(line);
+				if (property == null) {
+					continue;
+				}
+
+				long icuMessageHash = ICU_MESSAGE_HASH.hashString(property.icuMessage(), StandardCharsets.UTF_8).asLong();
+				SoyMsg msg = null;
+				if (previous != null) {
+					int previousIndex = previous.msgBundle().indexOf(property.msgId());
+					if (previousIndex != -1 && previous.icuMessageHashes()[previousIndex] == icuMessageHash) {
+						msg = previous.msgBundle().getMsg(property.msgId());
+					}
+				}
+				if (msg == null) {
+					msg = PropertiesIcuParser.parseIcuMsg(property.msgId(), property.icuMessage(), placeholderIndex);
+				}
+
+				// The bundle rejects duplicate ids, so the index of the message in the bundle is numMsgs.
+				msgBundle.add(msg);
+				if (numMsgs == icuMessageHashes.length) {
+					icuMessageHashes = Arrays.copyOf(icuMessageHashes, numMsgs * 2);
+				}
+				icuMessageHashes[numMsgs++] = icuMessageHash;
+			}
+			// The reader may not have consumed the input entirely (e.g. a trailing partial character).
+			ByteStreams.exhaust(input);
+			contentHash = input.hash();
+		}
+
+		return new Snapshot(msgBundle.build(), Arrays.copyOf(icuMessageHashes, numMsgs), contentHash);
+	}
+}
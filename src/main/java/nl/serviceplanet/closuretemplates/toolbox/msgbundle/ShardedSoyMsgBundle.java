@@ -0,0 +1,254 @@
+/*
+ * Copyright © 2024 Service Planet Rotterdam B.V. (it@ask.serviceplanet.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.serviceplanet.closuretemplates.toolbox.msgbundle;
+
+import com.google.common.collect.Iterators;
+import com.google.common.io.CharSource;
+import com.google.common.io.Resources;
+import com.google.template.soy.msgs.SoyMsgBundle;
+import com.google.template.soy.msgs.SoyMsgException;
+import com.google.template.soy.msgs.restricted.SoyMsg;
+import nl.serviceplanet.closuretemplates.toolbox.msgbundle.util.LongObjectHashMap;
+import nl.serviceplanet.closuretemplates.toolbox.msgbundle.util.TextUtil;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * {@link SoyMsgBundle} which is split into shards, one ICU properties file per Soy namespace, which are only loaded
+ * when one of their messages is looked up. An application which renders only a few namespaces of a large template
+ * library only loads (and keeps) the messages of those namespaces.
+ * <br /><br />
+ * The shards are generated by {@link PropertiesIcuGenerator#generateShardedProperties(SoyMsgBundle, Path)} (or the
+ * {@code soy-to-icu-properties} goal), next to an index file named {@value #INDEX_FILE_NAME} with a
+ * {@code <message id>=<shard>} line per message. Only the index is read when the bundle is created. Thread-safe.
+ */
+public final class ShardedSoyMsgBundle extends SoyMsgBundle implements LiveSoyMsgBundle {
+
+	/**
+	 * Name of the index file, in the same directory as the shards.
+	 */
+	public static final String INDEX_FILE_NAME = "msg-shards.index";
+
+	/**
+	 * Shard of messages whose namespace is not known.
+	 */
+	public static final String DEFAULT_SHARD = "default";
+
+	/**
+	 * Opens a file of the sharded bundle by name: the index or a shard.
+	 */
+	@FunctionalInterface
+	public interface ShardSource {
+		CharSource open(String fileName) throws IOException;
+	}
+
+	private final ShardSource shardSource;
+	private final String localeString;
+	private final PlaceholderIndex placeholderIndex;
+	private final LongObjectHashMap<Shard> shardByMsgId;
+	private final Shard[] shards;
+
+	private ShardedSoyMsgBundle(ShardSource shardSource, String localeString, PlaceholderIndex placeholderIndex,
+								LongObjectHashMap<Shard> shardByMsgId, Shard[] shards) {
+		this.shardSource = shardSource;
+		this.localeString = localeString;
+		this.placeholderIndex = placeholderIndex;
+		this.shardByMsgId = shardByMsgId;
+		this.shards = shards;
+	}
+
+	/**
+	 * Name of the file of a shard.
+	 */
+	public static String shardFileName(String shard) {
+		return shard + ".properties";
+	}
+
+	public static ShardedSoyMsgBundle fromDirectory(Path directory) throws IOException {
+		return fromDirectory(directory, null, PlaceholderIndex.EMPTY);
+	}
+
+	/**
+	 * @param localeString     Locale of the translations in the shards, e.g. {@code "nl"}.
+	 * @param placeholderIndex Index through which the references in the messages are resolved when a shard is loaded.
+	 */
+	public static ShardedSoyMsgBundle fromDirectory(Path directory, String localeString, PlaceholderIndex placeholderIndex) throws IOException {
+		checkNotNull(directory, "directory");
+		return load(fileName -> com.google.common.io.Files.asCharSource(directory.resolve(fileName).toFile(), StandardCharsets.UTF_8),
+				localeString, placeholderIndex);
+	}
+
+	/**
+	 * @param resourceDirectory Class path directory with the index and the shards, e.g. {@code "i18n/nl/"}.
+	 */
+	public static ShardedSoyMsgBundle fromResources(String resourceDirectory) throws IOException {
+		return fromResources(resourceDirectory, null, PlaceholderIndex.EMPTY);
+	}
+
+	/**
+	 * @param resourceDirectory Class path directory with the index and the shards, e.g. {@code "i18n/nl/"}.
+	 * @param localeString      Locale of the translations in the shards, e.g. {@code "nl"}.
+	 * @param placeholderIndex  Index through which the references in the messages are resolved when a shard is loaded.
+	 */
+	public static ShardedSoyMsgBundle fromResources(String resourceDirectory, String localeString, PlaceholderIndex placeholderIndex) throws IOException {
+		checkNotNull(resourceDirectory, "resourceDirectory");
+		String prefix = resourceDirectory.endsWith("/") ? resourceDirectory : resourceDirectory + "/";
+		return load(fileName -> {
+			URL url = Resources.getResource(prefix + fileName);
+			return Resources.asCharSource(url, StandardCharsets.UTF_8);
+		}, localeString, placeholderIndex);
+	}
+
+	/**
+	 * Reads the index, the shards are loaded from the source on demand.
+	 */
+	public static ShardedSoyMsgBundle load(ShardSource shardSource) throws IOException {
+		return load(shardSource, null, PlaceholderIndex.EMPTY);
+	}
+
+	/**
+	 * @param localeString     Locale of the translations in the shards, e.g. {@code "nl"}. The properties files do
+	 *                         not contain their locale, so without it the bundle has no locale.
+	 * @param placeholderIndex Index through which the references in the messages are resolved when a shard is loaded.
+	 */
+	public static ShardedSoyMsgBundle load(ShardSource shardSource, String localeString, PlaceholderIndex placeholderIndex) throws IOException {
+		checkNotNull(shardSource, "shardSource");
+		checkNotNull(placeholderIndex, "placeholderIndex");
+
+		LongObjectHashMap<Shard> shardByMsgId = new LongObjectHashMap<>();
+		Map<String, Shard> shardByName = new LinkedHashMap<>();
+		try (BufferedReader reader = shardSource.open(INDEX_FILE_NAME).openBufferedStream()) {
+			for (String line; (line = reader.readLine()) != null; ) {
+				if (line.isBlank() || line.startsWith("#")) {
+					continue;
+				}
+
+				int separator = TextUtil.indexOf(line, '=', 0, line.length());
+				if (separator == -1) {
+					throw new SoyMsgException(String.format("Invalid line in message shard index: '%s'.", line));
+				}
+				long msgId;
+				try {
+					msgId = Long.parseLong(line, 0, separator, 10);
+				} catch (NumberFormatException exc) {
+					throw new SoyMsgException(String.format("Invalid message id in message shard index: '%s'.", line), exc);
+				}
+				Shard shard = shardByName.computeIfAbsent(line.substring(separator + 1), Shard::new);
+				if (shardByMsgId.putIfAbsent(msgId, shard) != null) {
+					throw new SoyMsgException(String.format("Message id '%d' is in the message shard index more than once.", msgId));
+				}
+			}
+		}
+		shardByMsgId.trimToSize();
+
+		return new ShardedSoyMsgBundle(shardSource, localeString, placeholderIndex, shardByMsgId, shardByName.values().toArray(new Shard[0]));
+	}
+
+	/**
+	 * Number of shards which have been loaded so far.
+	 */
+	public int getLoadedShardCount() {
+		int loaded = 0;
+		for (Shard shard : shards) {
+			if (shard.msgBundle != null) {
+				loaded++;
+			}
+		}
+		return loaded;
+	}
+
+	public int getShardCount() {
+		return shards.length;
+	}
+
+	/**
+	 * Always live: the shards are loaded on demand.
+	 */
+	@Override
+	public boolean isLive() {
+		return true;
+	}
+
+	@Override
+	public String getLocaleString() {
+		return localeString;
+	}
+
+	/**
+	 * Looks up the message, loading its shard if this is the first lookup of a message of that shard.
+	 *
+	 * @throws UncheckedIOException If the shard could not be loaded.
+	 */
+	@Override
+	public SoyMsg getMsg(long id) {
+		Shard shard = shardByMsgId.get(id);
+		return (shard == null) ? null : shard.get(shardSource, placeholderIndex).getMsg(id);
+	}
+
+	/**
+	 * Number of messages in the index.
+	 */
+	@Override
+	public int getNumMsgs() {
+		return shardByMsgId.size();
+	}
+
+	/**
+	 * Iterates over the messages of all shards, which loads every shard which is not loaded yet.
+	 */
+	@Override
+	public Iterator<SoyMsg> iterator() {
+		Iterator<Iterator<SoyMsg>> shardIterators = Iterators.transform(Iterators.forArray(shards), shard -> shard.get(shardSource, placeholderIndex).iterator());
+		return Iterators.unmodifiableIterator(Iterators.concat(shardIterators));
+	}
+
+	private static final class Shard {
+		private final String name;
+		private volatile SoyMsgBundle msgBundle;
+
+		private Shard(String name) {
+			this.name = name;
+		}
+
+		private SoyMsgBundle get(ShardSource shardSource, PlaceholderIndex placeholderIndex) {
+			SoyMsgBundle loaded = msgBundle;
+			if (loaded != null) {
+				return loaded;
+			}
+
+			synchronized (this) {
+				if (msgBundle == null) {
+					try {
+						msgBundle = PropertiesIcuParser.parseIcuMsgsPropertiesFile(shardSource.open(shardFileName(name)), placeholderIndex);
+					} catch (IOException exc) {
+						throw new UncheckedIOException(String.format("Failed to load message shard '%s'.", name), exc);
+					}
+				}
+				return msgBundle;
+			}
+		}
+	}
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright © 2024 Service Planet Rotterdam B.V. (it@ask.serviceplanet.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.serviceplanet.closuretemplates.toolbox.msgbundle;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.google.template.soy.msgs.SoyMsgBundle;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ExecutionException;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Cache of loaded {@link SoyMsgBundle}s, keyed by for example the URI, the resource name or the locale of the bundle.
+ * Keys are compared with {@link Object#equals(Object)}, so do not use {@link java.net.URL} (which resolves host names
+ * to compare them) as key.
+ * <br /><br />
+ * A bundle is loaded at most once at a time: when several threads ask for a bundle which is not loaded yet, one of
+ * them loads it while the others wait for the result. The number of bundles can be bounded, in which case the least
+ * recently used bundles are evicted first. Thread-safe.
+ *
+ * @param <K> Type of the key which identifies a bundle.
+ */
+public final class SoyMsgBundleRegistry<K> {
+
+	/**
+	 * Loads the bundle for a key which is not in the registry.
+	 */
+	@FunctionalInterface
+	public interface Loader<K> {
+		SoyMsgBundle load(K key) throws IOException;
+	}
+
+	private final LoadingCache<K, SoyMsgBundle> bundles;
+
+	private SoyMsgBundleRegistry(Builder builder, Loader<K> loader) {
+		CacheBuilder<Object, Object> cacheBuilder = CacheBuilder.newBuilder().recordStats();
+		if (builder.maximumSize >= 0) {
+			cacheBuilder.maximumSize(builder.maximumSize);
+		}
+		if (builder.softValues) {
+			cacheBuilder.softValues();
+		}
+
+		this.bundles = cacheBuilder.build(new CacheLoader<>() {
+			@Override
+			public SoyMsgBundle load(K key) throws IOException {
+				return checkNotNull(loader.load(key), "loader returned null for key '%s'", key);
+			}
+		});
+	}
+
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * Returns the bundle for the key, loading it if it is not in the registry.
+	 *
+	 * @throws UncheckedIOException If loading the bundle failed.
+	 */
+	public SoyMsgBundle get(K key) {
+		checkNotNull(key, "key");
+
+		try {
+			return bundles.get(key);
+		} catch (ExecutionException exc) {
+			if (exc.getCause() instanceof IOException ioExc) {
+				throw new UncheckedIOException(String.format("Failed to load message bundle '%s'.", key), ioExc);
+			}
+			throw new IllegalStateException(String.format("Failed to load message bundle '%s'.", key), exc.getCause());
+		} catch (UncheckedExecutionException exc) {
+			throw new IllegalStateException(String.format("Failed to load message bundle '%s'.", key), exc.getCause());
+		}
+	}
+
+	/**
+	 * Returns the bundle for the key if it is in the registry, without loading it.
+	 */
+	public SoyMsgBundle getIfPresent(K key) {
+		return bundles.getIfPresent(checkNotNull(key, "key"));
+	}
+
+	/**
+	 * Removes the bundle for the key, so it is loaded again on the next {@link #get(Object)}.
+	 */
+	public void invalidate(K key) {
+		bundles.invalidate(checkNotNull(key, "key"));
+	}
+
+	public void invalidateAll() {
+		bundles.invalidateAll();
+	}
+
+	/**
+	 * Number of bundles in the registry. Bundles which are held softly and have been garbage collected may still be
+	 * counted.
+	 */
+	public long size() {
+		return bundles.size();
+	}
+
+	/**
+	 * Returns the hit, miss, load-time and eviction statistics since the registry was created.
+	 */
+	public CacheStats stats() {
+		return bundles.stats();
+	}
+
+	public static final class Builder {
+		private long maximumSize = -1;
+		private boolean softValues = false;
+
+		private Builder() {
+		}
+
+		/**
+		 * Limits the number of bundles in the registry. Once the limit is reached, the least recently used bundles
+		 * are evicted. Unbounded by default.
+		 */
+		public Builder maximumSize(long maximumSize) {
+			checkArgument(maximumSize >= 0, "maximumSize must be >= 0");
+			this.maximumSize = maximumSize;
+			return this;
+		}
+
+		/**
+		 * Holds the bundles through soft references, so the garbage collector can evict them when the heap runs
+		 * low.
+		 */
+		public Builder softValues() {
+			this.softValues = true;
+			return this;
+		}
+
+		public <K> SoyMsgBundleRegistry<K> build(Loader<K> loader) {
+			checkNotNull(loader, "loader");
+			return new SoyMsgBundleRegistry<>(this, loader);
+		}
+	}
+}
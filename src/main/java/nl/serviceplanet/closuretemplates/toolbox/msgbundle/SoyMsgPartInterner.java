@@ -0,0 +1,133 @@
+/*
+ * Copyright © 2024 Service Planet Rotterdam B.V. (it@ask.serviceplanet.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.serviceplanet.closuretemplates.toolbox.msgbundle;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.google.template.soy.msgs.restricted.SoyMsgPlaceholderPart;
+import com.google.template.soy.msgs.restricted.SoyMsgPluralCaseSpec;
+import com.google.template.soy.msgs.restricted.SoyMsgRawTextPart;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Pool of immutable message parts and names which repeat across messages and locales, such as placeholder names
+ * ({@code PRODUCT_COUNT_1}), placeholder parts, plural case specs and short raw-text segments. The parser resolves
+ * these through the pool so every bundle which is loaded shares a single instance of each.
+ * <br /><br />
+ * The pool only references its values weakly: a value is dropped from the pool once no loaded bundle uses it anymore,
+ * so evicted and reloaded bundles do not leave their parts behind. Thread-safe.
+ */
+public final class SoyMsgPartInterner {
+
+	/**
+	 * Raw-text segments longer than this are not interned. Longer segments rarely repeat, so they would only grow the
+	 * pool.
+	 */
+	private static final int MAX_INTERNED_RAW_TEXT_LENGTH = 64;
+
+	private static final SoyMsgPartInterner SHARED = new SoyMsgPartInterner();
+
+	private final Interner<String> names = Interners.newWeakInterner();
+	private final Interner<SoyMsgPlaceholderPart> placeholderParts = Interners.newWeakInterner();
+	private final Interner<SoyMsgPluralCaseSpec> pluralCaseSpecs = Interners.newWeakInterner();
+	private final Interner<SoyMsgRawTextPart> rawTextParts = Interners.newWeakInterner();
+
+	private final LongAdder lookups = new LongAdder();
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder bytesSaved = new LongAdder();
+
+	/**
+	 * Returns the pool which is shared by all bundles parsed by the {@link PropertiesIcuParser}.
+	 */
+	public static SoyMsgPartInterner shared() {
+		return SHARED;
+	}
+
+	/**
+	 * Returns the pooled instance of a name, such as a placeholder name or a select case.
+	 */
+	public String name(String name) {
+		return intern(names, name, SoyMsgPartInterner::estimateStringSize);
+	}
+
+	public SoyMsgPlaceholderPart placeholderPart(String placeholderName) {
+		String name = name(placeholderName);
+		return intern(placeholderParts, new SoyMsgPlaceholderPart(name), part -> estimateObjectSize(2));
+	}
+
+	/**
+	 * Returns the pooled plural case spec for an ICU case selector, like {@code =1} or {@code other}.
+	 *
+	 * @param converter Converts the selector into a case spec.
+	 */
+	public SoyMsgPluralCaseSpec pluralCaseSpec(String caseSelector, Function<String, SoyMsgPluralCaseSpec> converter) {
+		return intern(pluralCaseSpecs, converter.apply(caseSelector), spec -> estimateObjectSize(2));
+	}
+
+	public SoyMsgRawTextPart rawTextPart(String rawText) {
+		if (rawText.length() > MAX_INTERNED_RAW_TEXT_LENGTH) {
+			return SoyMsgRawTextPart.of(rawText);
+		}
+		return intern(rawTextParts, SoyMsgRawTextPart.of(rawText), part -> estimateObjectSize(1) + estimateStringSize(part.getRawText()));
+	}
+
+	public Statistics statistics() {
+		return new Statistics(lookups.sum(), hits.sum(), bytesSaved.sum());
+	}
+
+	/**
+	 * @param lookups             Number of times a value was resolved through the pool.
+	 * @param hits                Number of lookups which returned an already pooled value.
+	 * @param estimatedBytesSaved Estimate of the heap that would have been used by the duplicates which were replaced
+	 *                            by pooled values, assuming compressed oops and compact strings.
+	 */
+	public record Statistics(long lookups, long hits, long estimatedBytesSaved) {
+	}
+
+	private <V> V intern(Interner<V> pool, V value, ToLongFunction<? super V> duplicateSize) {
+		lookups.increment();
+
+		V pooled = pool.intern(value);
+		if (pooled != value) {
+			hits.increment();
+			bytesSaved.add(duplicateSize.applyAsLong(value));
+		}
+		return pooled;
+	}
+
+	private static long estimateStringSize(String s) {
+		// String object (header, hash, coder, value reference) plus its byte[] (header, length, content).
+		int bytesPerChar = 1;
+		for (int i = 0; i < s.length(); i++) {
+			if (s.charAt(i) > 0xFF) {
+				bytesPerChar = 2;
+				break;
+			}
+		}
+		return 24 + align(16 + (long) s.length() * bytesPerChar);
+	}
+
+	private static long estimateObjectSize(int referenceFields) {
+		return align(12 + 4L * referenceFields);
+	}
+
+	private static long align(long size) {
+		return (size + 7) & ~7L;
+	}
+}
@@ -17,33 +17,110 @@ package nl.serviceplanet.closuretemplates.toolbox.msgbundle;
 
 import com.google.template.soy.msgs.SoyMsgBundle;
 import com.google.template.soy.msgs.restricted.SoyMsg;
+import nl.serviceplanet.closuretemplates.toolbox.msgbundle.util.ConcurrentLongCounterTable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
-public class VerboseSoyMsgBundle extends SoyMsgBundle {
+/**
+ * {@link SoyMsgBundle} which tracks and logs the lookups of messages which are not in the wrapped bundle. Each missing
+ * message id is logged at most once per log interval, together with the number of failed lookups so far. Thread-safe
+ * if the wrapped bundle is.
+ * <br /><br />
+ * With a sample rate of N, each lookup is checked with a chance of 1 in N; the other lookups go straight to the wrapped
+ * bundle. The choice is random rather than every N-th lookup, because a render does a fixed sequence of lookups and
+ * every N-th lookup would then keep checking the same messages. Failed lookup counts only cover the sampled lookups.
+ */
+public class VerboseSoyMsgBundle extends SoyMsgBundle implements LiveSoyMsgBundle {
 	private final Logger log = LoggerFactory.getLogger(VerboseSoyMsgBundle.class);
 
+	/**
+	 * Maximum number of distinct missing message ids which are tracked. Lookups of ids beyond this are only counted.
+	 */
+	private static final int MAX_TRACKED_FAILED_MSG_IDS = 16 * 1024;
+
+	private static final Duration DEFAULT_LOG_INTERVAL = Duration.ofMinutes(1);
+
 	private final String tag;
 	private final SoyMsgBundle wrapped;
-	private final Set<Long> failedMsgLookups;
+	private final long logIntervalNanos;
+	private final ConcurrentLongCounterTable failedMsgLookups;
+	/** Per slot of {@link #failedMsgLookups}: {@link System#nanoTime()} of the last log line, 0 if never logged. */
+	private final AtomicLongArray lastLoggedNanos;
+	private final AtomicLong lastOverflowLoggedNanos;
+	private final int sampleRate;
 
 	public VerboseSoyMsgBundle(String tag, SoyMsgBundle wrapped) {
+		this(tag, wrapped, DEFAULT_LOG_INTERVAL);
+	}
+
+	/**
+	 * @param logInterval Minimum time between two log lines about the same missing message id.
+	 */
+	public VerboseSoyMsgBundle(String tag, SoyMsgBundle wrapped, Duration logInterval) {
+		this(tag, wrapped, logInterval, 1);
+	}
+
+	/**
+	 * @param logInterval Minimum time between two log lines about the same missing message id.
+	 * @param sampleRate  Check 1 in {@code sampleRate} lookups for a missing message, {@code 1} checks every lookup.
+	 */
+	public VerboseSoyMsgBundle(String tag, SoyMsgBundle wrapped, Duration logInterval, int sampleRate) {
 		checkNotNull(tag, "tag");
 		checkNotNull(wrapped, "wrapped");
+		checkNotNull(logInterval, "logInterval");
+		checkArgument(!logInterval.isNegative(), "logInterval must not be negative");
+		checkArgument(sampleRate >= 1, "sampleRate must be >= 1");
 
 		this.tag = tag;
 		this.wrapped = wrapped;
-		this.failedMsgLookups = new HashSet<>();
+		this.logIntervalNanos = logInterval.toNanos();
+		this.failedMsgLookups = new ConcurrentLongCounterTable(MAX_TRACKED_FAILED_MSG_IDS);
+		this.lastLoggedNanos = new AtomicLongArray(failedMsgLookups.slotCount());
+		this.lastOverflowLoggedNanos = new AtomicLong();
+		this.sampleRate = sampleRate;
 	}
 
+	/**
+	 * Returns a snapshot of the ids of the messages for which a lookup failed.
+	 */
 	public Set<Long> getFailedMsgLookups() {
-		return failedMsgLookups;
+		Set<Long> msgIds = new HashSet<>();
+		failedMsgLookups.forEach((msgId, count) -> msgIds.add(msgId));
+		return msgIds;
+	}
+
+	/**
+	 * Returns the number of failed lookups of the message, {@code 0} if it was never missing (or not tracked).
+	 */
+	public long getFailedMsgLookupCount(long msgId) {
+		return failedMsgLookups.count(msgId);
+	}
+
+	/**
+	 * Returns the number of failed lookups which were not tracked per message id because too many distinct ids were
+	 * missing.
+	 */
+	public long getUntrackedFailedMsgLookupCount() {
+		return failedMsgLookups.overflowCount();
+	}
+
+	/**
+	 * Live if the wrapped bundle is.
+	 */
+	@Override
+	public boolean isLive() {
+		return LiveSoyMsgBundle.isLive(wrapped);
 	}
 
 	@Override
@@ -62,14 +139,44 @@ public class VerboseSoyMsgBundle extends SoyMsgBundle {
 		// where the lookup is attempted and the ID is revealed. The ID is typically found in an i18n mapping-file. The
 		// logged {msg} ID can be used to ensure the mapping-files are correctly defined.
 
+		if (!isSampled()) {
+			return wrapped.getMsg(id);
+		}
+
 		SoyMsg got = wrapped.getMsg(id);
 		if (got == null) {
-			log.info("SoyMsgBundle[{}]::getMsg({}) lookup failed", tag, id);
-			failedMsgLookups.add(id);
+			failedLookup(id);
 		}
 		return got;
 	}
 
+	private boolean isSampled() {
+		return sampleRate == 1 || ThreadLocalRandom.current().nextInt(sampleRate) == 0;
+	}
+
+	private void failedLookup(long id) {
+		int slot = failedMsgLookups.increment(id);
+		long now = System.nanoTime();
+		if (slot == -1) {
+			long lastLogged = lastOverflowLoggedNanos.get();
+			if (shouldLog(lastLogged, now) && lastOverflowLoggedNanos.compareAndSet(lastLogged, Math.max(now, 1))) {
+				log.info("SoyMsgBundle[{}]::getMsg({}) lookup failed (over {} distinct ids missing, no longer tracked per id)",
+						tag, id, failedMsgLookups.maxKeys());
+			}
+			return;
+		}
+
+		// Only the thread which wins the compare-and-set logs, the others just counted the miss.
+		long lastLogged = lastLoggedNanos.get(slot);
+		if (shouldLog(lastLogged, now) && lastLoggedNanos.compareAndSet(slot, lastLogged, Math.max(now, 1))) {
+			log.info("SoyMsgBundle[{}]::getMsg({}) lookup failed ({} times so far)", tag, id, failedMsgLookups.count(id));
+		}
+	}
+
+	private boolean shouldLog(long lastLogged, long now) {
+		return lastLogged == 0 || now - lastLogged >= logIntervalNanos;
+	}
+
 	@Override
 	public int getNumMsgs() {
 		return wrapped.getNumMsgs();
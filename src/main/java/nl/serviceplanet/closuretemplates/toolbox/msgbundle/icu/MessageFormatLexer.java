@@ -19,71 +19,124 @@ import com.google.common.collect.ImmutableList;
 import nl.serviceplanet.closuretemplates.toolbox.msgbundle.util.TextUtil;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkPositionIndexes;
 
 /**
  * Simple lexer for the ICU message format.
+ * <br /><br />
+ * {@link #tokenize()} copies the text of every token into a {@link MessageFormatToken}. {@link #tokenizeInPlace()}
+ * does not copy any characters of the message, the produced {@link MessageFormatTokenView}s are views on the message
+ * which is being lexed.
+ * <br /><br />
+ * N.B.: the lexer is not used to load message bundles, {@code IcuMessageParser} parses messages in a single pass.
  *
  * @author Jasper Siepkes <siepkes@serviceplanet.nl>
  */
 public final class MessageFormatLexer {
+	private static final String SELECT_KEYWORD = "select";
+	private static final String PLURAL_KEYWORD = "plural";
+
 	/**
 	 * The message in ICU message format we need to parse.
 	 */
-	private final String formattedMessage;
+	private final CharSequence formattedMessage;
+	private final int end;
 	private int position;
 
 	public MessageFormatLexer(String formattedMessage) {
-		this.formattedMessage = formattedMessage;
-		this.position = 0;
+		this(formattedMessage, 0, formattedMessage.length());
 	}
 
+	public MessageFormatLexer(CharSequence formattedMessage) {
+		this(formattedMessage, 0, formattedMessage.length());
+	}
 
-	public ImmutableList<MessageFormatToken> tokenize() {
+	/**
+	 * Lexes only the {@code [start, end)} range of the given message. Offsets of the produced tokens are relative to
+	 * the entire message.
+	 */
+	public MessageFormatLexer(CharSequence formattedMessage, int start, int end) {
 		checkNotNull(formattedMessage);
+		checkPositionIndexes(start, end, formattedMessage.length());
 
-		ImmutableList.Builder<MessageFormatToken> tokens = ImmutableList.builder();
+		this.formattedMessage = formattedMessage;
+		this.end = end;
+		this.position = start;
+	}
 
-		while (position < formattedMessage.length()) {
-			char current = formattedMessage.charAt(position);
-			if (current == '{') {
-				// {...,select,.............}
-				// {...,plural,.............}
+	public ImmutableList<MessageFormatToken> tokenize() {
+		return tokenize((type, start, end) -> new MessageFormatToken(type, formattedMessage.subSequence(start, end).toString()));
+	}
+
+	/**
+	 * Like {@link #tokenize()}, but the tokens are views on the message instead of copies of its text.
+	 */
+	public ImmutableList<MessageFormatTokenView> tokenizeInPlace() {
+		return tokenize((type, start, end) -> new MessageFormatTokenView(type, formattedMessage, start, end - start));
+	}
+
+	@FunctionalInterface
+	private interface TokenFactory<T> {
+		T create(MessageFormatTokenType type, int start, int end);
+	}
 
-				String expr = extractExpression();
-				String keyword = TextUtil.between(expr, ",", ",", "unknown");
+	private <T> ImmutableList<T> tokenize(TokenFactory<T> tokenFactory) {
+		ImmutableList.Builder<T> tokens = ImmutableList.builder();
 
-				MessageFormatTokenType type = switch (keyword) {
-					case "select" -> MessageFormatTokenType.SELECT;
-					case "plural" -> MessageFormatTokenType.PLURAL;
-					default -> MessageFormatTokenType.PLACEHOLDER;
-				};
+		while (position < end) {
+			int start = position;
+			if (formattedMessage.charAt(position) == '{') {
+				// {...,select,.............}
+				// {...,plural,.............}
 
-				tokens.add(new MessageFormatToken(type, expr));
+				skipExpression();
+				tokens.add(tokenFactory.create(determineExpressionType(start, position), start, position));
 			} else {
-				tokens.add(new MessageFormatToken(MessageFormatTokenType.TEXT, extractText()));
+				skipText();
+				tokens.add(tokenFactory.create(MessageFormatTokenType.TEXT, start, position));
 			}
 		}
-		tokens.add(new MessageFormatToken(MessageFormatTokenType.EOF, ""));
+		tokens.add(tokenFactory.create(MessageFormatTokenType.EOF, position, position));
 
 		return tokens.build();
 	}
 
-	private String extractText() {
+	/**
+	 * Determines the type of the {@code [start, end)} expression by comparing the text between the first and second
+	 * comma to the select/plural keywords in place.
+	 */
+	private MessageFormatTokenType determineExpressionType(int start, int end) {
+		int firstComma = TextUtil.indexOf(formattedMessage, ',', start, end);
+		if (firstComma == -1) {
+			return MessageFormatTokenType.PLACEHOLDER;
+		}
+		int secondComma = TextUtil.indexOf(formattedMessage, ',', firstComma + 1, end);
+		if (secondComma == -1) {
+			return MessageFormatTokenType.PLACEHOLDER;
+		}
+
+		if (TextUtil.regionEquals(formattedMessage, firstComma + 1, secondComma, SELECT_KEYWORD)) {
+			return MessageFormatTokenType.SELECT;
+		} else if (TextUtil.regionEquals(formattedMessage, firstComma + 1, secondComma, PLURAL_KEYWORD)) {
+			return MessageFormatTokenType.PLURAL;
+		}
+		return MessageFormatTokenType.PLACEHOLDER;
+	}
+
+	private void skipText() {
 		int start = position;
-		while (position < formattedMessage.length() && formattedMessage.charAt(position) != '{') {
+		while (position < end && formattedMessage.charAt(position) != '{') {
 			if (formattedMessage.charAt(position) == '}') {
-				throw new IllegalStateException("Unexpected end-of-expression in text-block: '" + formattedMessage.substring(start) + "'");
+				throw new IllegalStateException("Unexpected end-of-expression in text-block: '" + formattedMessage.subSequence(start, end) + "'");
 			}
 			position++;
 		}
-		return formattedMessage.substring(start, position);
 	}
 
-	private String extractExpression() {
-		int start = position;
+	private void skipExpression() {
 		int braceCount = 1;
 		position++; // Skip the opening brace
-		while (position < formattedMessage.length() && braceCount > 0) {
+		while (position < end && braceCount > 0) {
 			if (formattedMessage.charAt(position) == '{') {
 				braceCount++;
 			} else if (formattedMessage.charAt(position) == '}') {
@@ -94,6 +147,5 @@ public final class MessageFormatLexer {
 		if (braceCount != 0) {
 			throw new IllegalStateException("Unclosed expression");
 		}
-		return formattedMessage.substring(start, position);
 	}
 }
@@ -0,0 +1,97 @@
+/*
+ * Copyright © 2024 Service Planet Rotterdam B.V. (it@ask.serviceplanet.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.serviceplanet.closuretemplates.toolbox.msgbundle.icu;
+
+import java.util.Objects;
+
+import static com.google.common.base.Preconditions.checkPositionIndexes;
+
+/**
+ * Lexical token of an ICU formatted message, as a view ({@code offset} and {@code length}) on the message it was lexed
+ * from. Produced by {@link MessageFormatLexer#tokenizeInPlace()}, no characters are copied while lexing. Use
+ * {@link #value()} or {@link #toToken()} when an actual {@code String} is needed.
+ */
+public record MessageFormatTokenView(MessageFormatTokenType type, CharSequence source, int offset, int length) implements CharSequence {
+
+	public MessageFormatTokenView {
+		Objects.requireNonNull(type, "type");
+		Objects.requireNonNull(source, "source");
+		checkPositionIndexes(offset, offset + length, source.length());
+	}
+
+	/**
+	 * Copies the characters of this token into a new {@code String}.
+	 */
+	public String value() {
+		return source.subSequence(offset, offset + length).toString();
+	}
+
+	/**
+	 * Copies this token into a {@link MessageFormatToken}.
+	 */
+	public MessageFormatToken toToken() {
+		return new MessageFormatToken(type, value());
+	}
+
+	/**
+	 * Returns whether the characters of this token equal the given text, without copying them.
+	 */
+	public boolean contentEquals(CharSequence text) {
+		if (text.length() != length) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (source.charAt(offset + i) != text.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public char charAt(int index) {
+		Objects.checkIndex(index, length);
+		return source.charAt(offset + index);
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		checkPositionIndexes(start, end, length);
+		return new MessageFormatTokenView(type, source, offset + start, end - start);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		return o instanceof MessageFormatTokenView other && type == other.type && contentEquals(other);
+	}
+
+	@Override
+	public int hashCode() {
+		int hash = type.hashCode();
+		for (int i = 0; i < length; i++) {
+			hash = 31 * hash + source.charAt(offset + i);
+		}
+		return hash;
+	}
+
+	/**
+	 * Returns the characters of this token, as required by the {@link CharSequence} contract.
+	 */
+	@Override
+	public String toString() {
+		return value();
+	}
+}
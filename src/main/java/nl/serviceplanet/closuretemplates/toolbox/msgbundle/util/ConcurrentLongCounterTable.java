@@ -0,0 +1,193 @@
+/*
+ * Copyright © 2024 Service Planet Rotterdam B.V. (it@ask.serviceplanet.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.serviceplanet.closuretemplates.toolbox.msgbundle.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Concurrent set of primitive {@code long} keys with a counter per key, without locks and without boxing the keys.
+ * <br /><br />
+ * The table has a fixed number of slots and keys can not be removed. Each key gets a slot (open addressing, linear
+ * probing); the slot index is stable, so callers can keep their own per-key state in arrays of {@link #slotCount()}
+ * elements. The table accepts at most {@link #maxKeys()} keys, which keeps it at most half full, and a key is only
+ * looked for in a limited number of slots, so a lookup stays cheap when the table is full. Keys which do not fit
+ * anymore are not added and only counted by {@link #overflowCount()}. Thread-safe.
+ */
+public final class ConcurrentLongCounterTable {
+	private static final long FIBONACCI_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+	/**
+	 * Maximum number of slots in which a key is looked for. At a load of at most 50% a key is almost always found
+	 * within a few slots.
+	 */
+	private static final int MAX_PROBES = 16;
+
+	private static final int EMPTY = 0;
+	private static final int CLAIMING = 1;
+	private static final int READY = 2;
+
+	/** Slot state, a slot's key and counter may only be read after reading {@link #READY}. */
+	private final AtomicIntegerArray states;
+	private final long[] keys;
+	private final LongAdder[] counters;
+	private final int shift;
+	private final int maxKeys;
+	/** Number of slots which are claimed by a key (or are being claimed), never more than {@link #maxKeys}. */
+	private final AtomicInteger claimed = new AtomicInteger();
+	private final LongAdder overflow = new LongAdder();
+
+	/**
+	 * @param maxKeys Maximum number of keys, the table gets at least twice as many slots.
+	 */
+	public ConcurrentLongCounterTable(int maxKeys) {
+		checkArgument(maxKeys > 0 && maxKeys <= (1 << 29), "maxKeys must be in (0, 2^29]");
+
+		// At least 2 slots, a shift of 64 would be a shift of 0.
+		int slotCount = Math.max(2, Integer.highestOneBit(maxKeys) << 1);
+		if (slotCount < maxKeys * 2) {
+			slotCount <<= 1;
+		}
+		this.states = new AtomicIntegerArray(slotCount);
+		this.keys = new long[slotCount];
+		this.counters = new LongAdder[slotCount];
+		this.shift = Long.SIZE - Integer.numberOfTrailingZeros(slotCount);
+		this.maxKeys = maxKeys;
+	}
+
+	/**
+	 * Number of slots, slot indexes are in {@code [0, slotCount())}.
+	 */
+	public int slotCount() {
+		return keys.length;
+	}
+
+	public int maxKeys() {
+		return maxKeys;
+	}
+
+	/**
+	 * Adds one to the counter of the key, adding the key if it is not present yet.
+	 *
+	 * @return The slot of the key, or {@code -1} if the key does not fit in the table.
+	 */
+	public int increment(long key) {
+		int slot = slotOf(key, true);
+		if (slot == -1) {
+			overflow.increment();
+		} else {
+			counters[slot].increment();
+		}
+		return slot;
+	}
+
+	/**
+	 * @return The slot of the key, or {@code -1} if the key is not present.
+	 */
+	public int indexOf(long key) {
+		return slotOf(key, false);
+	}
+
+	/**
+	 * @return The counter of the key, {@code 0} if the key is not present.
+	 */
+	public long count(long key) {
+		int slot = indexOf(key);
+		return (slot == -1) ? 0 : counters[slot].sum();
+	}
+
+	/**
+	 * Number of keys in the table.
+	 */
+	public int size() {
+		return claimed.get();
+	}
+
+	/**
+	 * Number of increments of keys which did not fit in the table.
+	 */
+	public long overflowCount() {
+		return overflow.sum();
+	}
+
+	/**
+	 * Calls the consumer for every key in the table, in slot order. Keys which are added concurrently may or may not
+	 * be visited.
+	 */
+	public void forEach(KeyCountConsumer consumer) {
+		for (int slot = 0; slot < keys.length; slot++) {
+			if (states.get(slot) == READY) {
+				consumer.accept(keys[slot], counters[slot].sum());
+			}
+		}
+	}
+
+	@FunctionalInterface
+	public interface KeyCountConsumer {
+		void accept(long key, long count);
+	}
+
+	private int slotOf(long key, boolean add) {
+		int mask = keys.length - 1;
+		int slot = (int) ((key * FIBONACCI_MULTIPLIER) >>> shift);
+		for (int probes = 0; probes < MAX_PROBES; ) {
+			int state = states.get(slot);
+			if (state == READY) {
+				if (keys[slot] == key) {
+					return slot;
+				}
+			} else if (state == EMPTY) {
+				if (!add || !reserveKey()) {
+					return -1;
+				}
+				if (!states.compareAndSet(slot, EMPTY, CLAIMING)) {
+					claimed.decrementAndGet();
+					continue; // Another thread claimed this slot, check whether it claimed it for the same key.
+				}
+				keys[slot] = key;
+				counters[slot] = new LongAdder();
+				states.set(slot, READY); // Publishes the key and the counter.
+				return slot;
+			} else {
+				// Another thread is writing the key of this slot, which takes only a few instructions.
+				Thread.onSpinWait();
+				continue;
+			}
+
+			slot = (slot + 1) & mask;
+			probes++;
+		}
+		return -1;
+	}
+
+	/**
+	 * Reserves room for one more key, if the table accepts more keys.
+	 */
+	private boolean reserveKey() {
+		// Reading first keeps a full table from turning every lookup of an unknown key into a write.
+		if (claimed.get() >= maxKeys) {
+			return false;
+		}
+		if (claimed.incrementAndGet() > maxKeys) {
+			claimed.decrementAndGet();
+			return false;
+		}
+		return true;
+	}
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright © 2024 Service Planet Rotterdam B.V. (it@ask.serviceplanet.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.serviceplanet.closuretemplates.toolbox.msgbundle.util;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Map from primitive {@code long} keys to objects, without boxing the keys.
+ * <br /><br />
+ * Entries are stored in insertion order in parallel key/value arrays. An open-addressing (linear probing) table of
+ * indices into these arrays is used for lookups. Removing an entry is {@code O(n)}, the map is meant to be built once
+ * and then only read. Not thread-safe, but safe to share between threads once it is no longer modified.
+ */
+public final class LongObjectHashMap<V> implements Iterable<V> {
+	private static final long FIBONACCI_MULTIPLIER = 0x9E3779B97F4A7C15L;
+	private static final int MIN_TABLE_SIZE = 16;
+
+	private long[] keys;
+	private Object[] values;
+	private int size;
+
+	/** Index + 1 of the entry in {@link #keys}/{@link #values}, 0 means the slot is empty. */
+	private int[] table;
+	private int shift;
+
+	public LongObjectHashMap() {
+		this(0);
+	}
+
+	public LongObjectHashMap(int expectedSize) {
+		checkArgument(expectedSize >= 0, "expectedSize must be >= 0");
+
+		this.keys = new long[Math.max(expectedSize, 8)];
+		this.values = new Object[keys.length];
+		this.size = 0;
+		allocateTable(tableSizeFor(expectedSize));
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean containsKey(long key) {
+		return indexOf(key) != -1;
+	}
+
+	public V get(long key) {
+		int index = indexOf(key);
+		return (index == -1) ? null : valueAt(index);
+	}
+
+	/**
+	 * Associates the value with the key, replacing (but keeping the insertion position of) an existing entry.
+	 *
+	 * @return The previous value, or {@code null} if there was none.
+	 */
+	public V put(long key, V value) {
+		int index = indexOf(key);
+		if (index != -1) {
+			V previous = valueAt(index);
+			values[index] = value;
+			return previous;
+		}
+		append(key, value);
+		return null;
+	}
+
+	/**
+	 * Associates the value with the key, unless the key is already present.
+	 *
+	 * @return The existing value, or {@code null} if the value was added.
+	 */
+	public V putIfAbsent(long key, V value) {
+		int index = indexOf(key);
+		if (index != -1) {
+			return valueAt(index);
+		}
+		append(key, value);
+		return null;
+	}
+
+	/**
+	 * Removes the entry of the key, the remaining entries keep their insertion order. Takes time proportional to the
+	 * size of the map.
+	 *
+	 * @return The removed value, or {@code null} if the key was not present.
+	 */
+	public V remove(long key) {
+		int index = indexOf(key);
+		if (index == -1) {
+			return null;
+		}
+
+		V removed = valueAt(index);
+		System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+		System.arraycopy(values, index + 1, values, index, size - index - 1);
+		size--;
+		values[size] = null;
+
+		// The indices of all entries after the removed one changed.
+		Arrays.fill(table, 0);
+		for (int i = 0; i < size; i++) {
+			insertIntoTable(i);
+		}
+		return removed;
+	}
+
+	/**
+	 * Returns the key of the entry at the given position in insertion order.
+	 */
+	public long keyAt(int index) {
+		checkIndex(index);
+		return keys[index];
+	}
+
+	/**
+	 * Returns the value of the entry at the given position in insertion order.
+	 */
+	@SuppressWarnings("unchecked")
+	public V valueAt(int index) {
+		checkIndex(index);
+		return (V) values[index];
+	}
+
+	/**
+	 * Iterates over the values in insertion order.
+	 */
+	@Override
+	public Iterator<V> iterator() {
+		return new Iterator<>() {
+			private int next = 0;
+
+			@Override
+			public boolean hasNext() {
+				return next < size;
+			}
+
+			@Override
+			public V next() {
+				if (next >= size) {
+					throw new NoSuchElementException();
+				}
+				return valueAt(next++);
+			}
+		};
+	}
+
+	/**
+	 * Releases the unused capacity of the entry arrays, for maps which are no longer modified.
+	 */
+	public void trimToSize() {
+		keys = Arrays.copyOf(keys, size);
+		values = Arrays.copyOf(values, size);
+	}
+
+	/**
+	 * Returns the position of the entry of the key in insertion order, or {@code -1} if the key is not present.
+	 */
+	public int indexOf(long key) {
+		int mask = table.length - 1;
+		for (int slot = slotFor(key); ; slot = (slot + 1) & mask) {
+			int entry = table[slot];
+			if (entry == 0) {
+				return -1;
+			}
+			if (keys[entry - 1] == key) {
+				return entry - 1;
+			}
+		}
+	}
+
+	private void append(long key, V value) {
+		if (size == keys.length) {
+			int capacity = Math.max(8, size * 2);
+			keys = Arrays.copyOf(keys, capacity);
+			values = Arrays.copyOf(values, capacity);
+		}
+		keys[size] = key;
+		values[size] = value;
+		size++;
+
+		if (size * 2 > table.length) {
+			allocateTable(table.length * 2);
+			for (int i = 0; i < size; i++) {
+				insertIntoTable(i);
+			}
+		} else {
+			insertIntoTable(size - 1);
+		}
+	}
+
+	private void insertIntoTable(int index) {
+		int mask = table.length - 1;
+		int slot = slotFor(keys[index]);
+		while (table[slot] != 0) {
+			slot = (slot + 1) & mask;
+		}
+		table[slot] = index + 1;
+	}
+
+	private int slotFor(long key) {
+		// Fibonacci hashing: the multiplication spreads the bits of (often sequential) keys over the high bits.
+		return (int) ((key * FIBONACCI_MULTIPLIER) >>> shift);
+	}
+
+	private void allocateTable(int tableSize) {
+		table = new int[tableSize];
+		shift = Long.SIZE - Integer.numberOfTrailingZeros(tableSize);
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("index " + index + " out of bounds for size " + size);
+		}
+	}
+
+	private static int tableSizeFor(int expectedSize) {
+		// Keep the load factor of the table at or below 0.5.
+		int tableSize = MIN_TABLE_SIZE;
+		while (tableSize < expectedSize * 2) {
+			tableSize *= 2;
+		}
+		return tableSize;
+	}
+}
@@ -22,26 +22,89 @@ import com.google.template.soy.msgs.SoyMsgBundleHandler;
 import com.google.template.soy.soytree.AbstractParentSoyNode;
 import com.google.template.soy.soytree.SoyNode;
 import com.google.template.soy.soytree.TemplateNode;
+import nl.serviceplanet.closuretemplates.toolbox.msgbundle.PlaceholderIndex;
 import nl.serviceplanet.closuretemplates.toolbox.msgbundle.PropertiesIcuMsgPlugin;
+import nl.serviceplanet.closuretemplates.toolbox.msgbundle.ReloadingSoyMsgBundle;
+import nl.serviceplanet.closuretemplates.toolbox.msgbundle.SoyMsgBundleRegistry;
 import nl.serviceplanet.closuretemplates.toolbox.msgbundle.VerboseSoyMsgBundle;
 
 import java.io.IOException;
+import java.net.URI;
 import java.net.URL;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 
 public final class SoyUtil {
+	/**
+	 * Loads and parses the bundle on every call, see {@link #newIcuMsgBundleRegistry(long)} to load each bundle once.
+	 */
 	public static SoyMsgBundle loadIcuMsgBundle(URL url) {
-		PropertiesIcuMsgPlugin icuMsgPlugin = new PropertiesIcuMsgPlugin();
-		SoyMsgBundleHandler msgBundleHandler = new SoyMsgBundleHandler(icuMsgPlugin);
+		return loadIcuMsgBundle(url, PlaceholderIndex.EMPTY);
+	}
+
+	/**
+	 * @param placeholderIndex Index of the templates the bundle belongs to, see
+	 *                         {@link PlaceholderIndex#fromFileSet(SoyFileSet)}.
+	 */
+	public static SoyMsgBundle loadIcuMsgBundle(URL url, PlaceholderIndex placeholderIndex) {
+		try {
+			return readIcuMsgBundle(newIcuMsgBundleHandler(placeholderIndex), url);
+		} catch (IOException exc) {
+			throw new RuntimeException(exc);
+		}
+	}
+
+	/**
+	 * Creates a registry which loads the ICU bundle of a URI once and keeps at most {@code maximumSize} bundles.
+	 * <br /><br />
+	 * The registry is keyed by {@link URI} instead of {@link URL}, as {@link URL#equals(Object)} resolves host names.
+	 * URIs are compared as written, so always derive the key of a bundle the same way (e.g. with
+	 * {@link Path#toUri()} or {@code URL.toURI()}).
+	 */
+	public static SoyMsgBundleRegistry<URI> newIcuMsgBundleRegistry(long maximumSize) {
+		return newIcuMsgBundleRegistry(maximumSize, PlaceholderIndex.EMPTY);
+	}
+
+	/**
+	 * @param placeholderIndex Index of the templates the bundles belong to, see
+	 *                         {@link PlaceholderIndex#fromFileSet(SoyFileSet)}.
+	 */
+	public static SoyMsgBundleRegistry<URI> newIcuMsgBundleRegistry(long maximumSize, PlaceholderIndex placeholderIndex) {
+		SoyMsgBundleHandler msgBundleHandler = newIcuMsgBundleHandler(placeholderIndex);
+		return SoyMsgBundleRegistry.builder()
+				.maximumSize(maximumSize)
+				.build((URI uri) -> readIcuMsgBundle(msgBundleHandler, uri.toURL()));
+	}
+
+	/**
+	 * Loads the ICU bundle from a file and reloads it whenever the file changes, see {@link ReloadingSoyMsgBundle}.
+	 */
+	public static ReloadingSoyMsgBundle loadReloadingIcuMsgBundle(Path file) {
+		return loadReloadingIcuMsgBundle(file, PlaceholderIndex.EMPTY);
+	}
+
+	/**
+	 * @param placeholderIndex Index of the templates the bundle belongs to, see
+	 *                         {@link PlaceholderIndex#fromFileSet(SoyFileSet)}.
+	 */
+	public static ReloadingSoyMsgBundle loadReloadingIcuMsgBundle(Path file, PlaceholderIndex placeholderIndex) {
 		try {
-			return new VerboseSoyMsgBundle("url: " + url, msgBundleHandler.createFromResource(url));
+			return ReloadingSoyMsgBundle.watch(file, placeholderIndex);
 		} catch (IOException exc) {
 			throw new RuntimeException(exc);
 		}
 	}
 
+	private static SoyMsgBundleHandler newIcuMsgBundleHandler(PlaceholderIndex placeholderIndex) {
+		return new SoyMsgBundleHandler(new PropertiesIcuMsgPlugin(PropertiesIcuMsgPlugin.ParseMode.STREAMING, placeholderIndex));
+	}
+
+	private static SoyMsgBundle readIcuMsgBundle(SoyMsgBundleHandler msgBundleHandler, URL url) throws IOException {
+		return new VerboseSoyMsgBundle("url: " + url, msgBundleHandler.createFromResource(url));
+	}
+
 	public record SoyCompilation(SoyFileSet soyFileSet, SoySauce soySauce, String rootTemplateName) {
 	}
 
@@ -16,7 +16,6 @@
 package nl.serviceplanet.closuretemplates.toolbox.msgbundle.util;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
 import static com.google.common.base.Preconditions.checkArgument;
@@ -117,71 +116,168 @@ public class TextUtil {
 		return beforeLast(full, last);
 	}
 
-	public static String camelCaseToUpperSnakeCase(String s) {
-		if (!isCamelCase(s)) {
-			throw new IllegalArgumentException("expected camel-case: '" + s + "'");
+	/**
+	 * Returns the index of the first occurrence of the character in {@code [fromIndex, toIndex)}, or {@code -1}.
+	 */
+	public static int indexOf(CharSequence s, char c, int fromIndex, int toIndex) {
+		for (int i = fromIndex; i < toIndex; i++) {
+			if (s.charAt(i) == c) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the index of the first occurrence of {@code find} at or after {@code fromIndex}, or {@code -1}.
+	 */
+	public static int indexOf(CharSequence s, CharSequence find, int fromIndex) {
+		if (find.isEmpty()) {
+			return Math.min(Math.max(fromIndex, 0), s.length());
 		}
 
-		StringBuilder sb = new StringBuilder();
-		for (char c : s.toCharArray()) {
-			if (Character.isUpperCase(c)) {
-				sb.append("_");
+		char first = find.charAt(0);
+		int last = s.length() - find.length();
+		for (int i = Math.max(fromIndex, 0); i <= last; i++) {
+			if (s.charAt(i) == first && regionEquals(s, i, find)) {
+				return i;
 			}
-			sb.append(Character.toUpperCase(c));
 		}
+		return -1;
+	}
 
-		String upperSnakeCase = sb.toString();
-		if (!isUpperSnakeCase(upperSnakeCase)) {
-			throw new AssertionError();
+	/**
+	 * Returns whether {@code s} contains {@code other} at {@code offset}.
+	 */
+	public static boolean regionEquals(CharSequence s, int offset, CharSequence other) {
+		if (offset < 0 || offset > s.length() - other.length()) {
+			return false;
 		}
-		return upperSnakeCase;
+		for (int i = 0; i < other.length(); i++) {
+			if (s.charAt(offset + i) != other.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
 	}
 
-	private static final String alphabet_lower = "abcdefghijklmnopqrstuvwxyz";
-	private static final String alphabet_upper = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
-	private static final String digits = "0123456789";
+	/**
+	 * Returns whether the {@code [start, end)} range of {@code s} equals {@code other}.
+	 */
+	public static boolean regionEquals(CharSequence s, int start, int end, CharSequence other) {
+		return end - start == other.length() && regionEquals(s, start, other);
+	}
 
+	public static String camelCaseToUpperSnakeCase(CharSequence s) {
+		StringBuilder sb = new StringBuilder(s.length() + s.length() / 2);
+		appendCamelCaseAsUpperSnakeCase(s, 0, s.length(), sb);
+		return sb.toString();
+	}
 
-	public static boolean isCamelCase(String s) {
-		return isFullyComprisedOfChars(s, alphabet_lower + alphabet_upper + digits) &&
-				isPartlyComprisedOfChars(s, alphabet_lower);
+	/**
+	 * Appends the camel-case {@code [start, end)} range of {@code s} as upper-snake-case. Validates and converts the
+	 * range in a single pass.
+	 */
+	public static void appendCamelCaseAsUpperSnakeCase(CharSequence s, int start, int end, StringBuilder out) {
+		boolean hasLower = false;
+		for (int i = start; i < end; i++) {
+			char c = s.charAt(i);
+			int charClass = charClass(c);
+			if ((charClass & (LOWER | UPPER | DIGIT)) == 0) {
+				throw new IllegalArgumentException("expected camel-case: '" + s.subSequence(start, end) + "'");
+			}
+
+			if (charClass == UPPER) {
+				out.append('_').append(c);
+			} else if (charClass == LOWER) {
+				hasLower = true;
+				out.append((char) (c - ('a' - 'A')));
+			} else {
+				out.append(c);
+			}
+		}
+
+		if (!hasLower) {
+			throw new IllegalArgumentException("expected camel-case: '" + s.subSequence(start, end) + "'");
+		}
 	}
 
-	public static boolean isUpperSnakeCase(String s) {
-		return isFullyComprisedOfChars(s, alphabet_upper + digits + "_") &&
-				isPartlyComprisedOfChars(s, alphabet_upper) &&
-				!s.contains("__") &&
-				!s.endsWith("_");
+	private static final int LOWER = 1;
+	private static final int UPPER = 2;
+	private static final int DIGIT = 4;
+	private static final int UNDERSCORE = 8;
+
+	/** Character class of every ASCII character, see {@link #charClass(char)}. */
+	private static final byte[] CHAR_CLASSES = new byte[128];
+
+	static {
+		for (char c = 'a'; c <= 'z'; c++) {
+			CHAR_CLASSES[c] = LOWER;
+		}
+		for (char c = 'A'; c <= 'Z'; c++) {
+			CHAR_CLASSES[c] = UPPER;
+		}
+		for (char c = '0'; c <= '9'; c++) {
+			CHAR_CLASSES[c] = DIGIT;
+		}
+		CHAR_CLASSES['_'] = UNDERSCORE;
 	}
 
-	public static boolean isVariableName(String s) {
-		return isCamelCase(s) || isUpperSnakeCase(s);
+	private static int charClass(char c) {
+		return (c < CHAR_CLASSES.length) ? CHAR_CLASSES[c] : 0;
 	}
 
-	private static boolean isFullyComprisedOfChars(String s, String... charTables) {
-		if (s.isEmpty()) {
-			return false;
-		}
+	public static boolean isCamelCase(CharSequence s) {
+		return isCamelCase(s, 0, s.length());
+	}
 
-		for (char c : s.toCharArray()) {
-			if (Arrays.stream(charTables).mapToInt(e -> e.indexOf(c)).min().orElse(-1) == -1) {
+	/**
+	 * Returns whether the {@code [start, end)} range of {@code s} consists of ASCII letters and digits only, with at
+	 * least one lower-case letter.
+	 */
+	public static boolean isCamelCase(CharSequence s, int start, int end) {
+		boolean hasLower = false;
+		for (int i = start; i < end; i++) {
+			int charClass = charClass(s.charAt(i));
+			if ((charClass & (LOWER | UPPER | DIGIT)) == 0) {
 				return false;
 			}
+			hasLower |= charClass == LOWER;
 		}
-		return true;
+		return hasLower;
 	}
 
-	private static boolean isPartlyComprisedOfChars(String s, String... charTables) {
-		if (s.isEmpty()) {
-			return false;
-		}
+	public static boolean isUpperSnakeCase(CharSequence s) {
+		return isUpperSnakeCase(s, 0, s.length());
+	}
 
-		for (char c : s.toCharArray()) {
-			if (Arrays.stream(charTables).mapToInt(e -> e.indexOf(c)).max().orElse(-1) != -1) {
-				return true;
+	/**
+	 * Returns whether the {@code [start, end)} range of {@code s} consists of upper-case ASCII letters, digits and
+	 * single underscores, with at least one letter and not ending with an underscore.
+	 */
+	public static boolean isUpperSnakeCase(CharSequence s, int start, int end) {
+		boolean hasUpper = false;
+		int previousCharClass = 0;
+		for (int i = start; i < end; i++) {
+			int charClass = charClass(s.charAt(i));
+			if ((charClass & (UPPER | DIGIT | UNDERSCORE)) == 0) {
+				return false;
 			}
+			if (charClass == UNDERSCORE && previousCharClass == UNDERSCORE) {
+				return false;
+			}
+			hasUpper |= charClass == UPPER;
+			previousCharClass = charClass;
 		}
-		return false;
+		return hasUpper && previousCharClass != UNDERSCORE;
+	}
+
+	public static boolean isVariableName(CharSequence s) {
+		return isVariableName(s, 0, s.length());
+	}
+
+	public static boolean isVariableName(CharSequence s, int start, int end) {
+		return isCamelCase(s, start, end) || isUpperSnakeCase(s, start, end);
 	}
 
 	public static List<String> splitWithoutRegex(String s, String delim) {
@@ -196,18 +292,44 @@ public class TextUtil {
 		//  - "###-".split("#").length == 4
 		// Issue: *empty* trailing elements are removed from the array.
 
+		List<String> parts = new ArrayList<>();
+		split(s, 0, s.length(), delim, maxPartCount, (partStart, partEnd) -> parts.add(s.substring(partStart, partEnd)));
+		return parts;
+	}
+
+	/**
+	 * Receives the {@code [start, end)} range of a part found by {@link #split}.
+	 */
+	@FunctionalInterface
+	public interface RangeConsumer {
+		void accept(int start, int end);
+	}
+
+	/**
+	 * Splits the {@code [start, end)} range of {@code s} at every occurrence of {@code delim} and passes the range of
+	 * every part to the consumer, without creating any strings. Like {@link #splitWithoutRegex(String, String, int)},
+	 * empty parts are passed as well and the last of {@code maxPartCount} parts holds the remainder of the range.
+	 *
+	 * @return The number of parts.
+	 */
+	public static int split(CharSequence s, int start, int end, CharSequence delim, int maxPartCount, RangeConsumer consumer) {
+		checkArgument(!delim.isEmpty(), "delim must not be empty");
 		checkArgument(maxPartCount > 0, "maxPartCount must be > 0");
 
-		List<String> parts = new ArrayList<>();
-		while (parts.size() < maxPartCount - 1) {
-			String before = before(s, delim, null);
-			if (before == null) {
-				break;
+		int partCount = 0;
+		int partStart = start;
+		int lastDelimStart = end - delim.length();
+		for (int i = start; i <= lastDelimStart && partCount < maxPartCount - 1; ) {
+			if (regionEquals(s, i, delim)) {
+				consumer.accept(partStart, i);
+				partCount++;
+				i += delim.length();
+				partStart = i;
+			} else {
+				i++;
 			}
-			parts.add(before);
-			s = after(s, delim);
 		}
-		parts.add(s);
-		return parts;
+		consumer.accept(partStart, end);
+		return partCount + 1;
 	}
 }
@@ -15,7 +15,10 @@
  */
 package nl.serviceplanet.closuretemplates.toolbox;
 
+import com.google.common.io.CharSource;
 import com.google.template.soy.msgs.SoyMsgBundle;
+import nl.serviceplanet.closuretemplates.toolbox.msgbundle.PlaceholderIndex;
+import nl.serviceplanet.closuretemplates.toolbox.msgbundle.PropertiesIcuMsgPlugin;
 import nl.serviceplanet.closuretemplates.toolbox.msgbundle.util.SoyUtil;
 import nl.serviceplanet.closuretemplates.toolbox.util.SoyTestUtil;
 import org.junit.jupiter.api.Assertions;
@@ -24,6 +27,7 @@ import org.junit.jupiter.api.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.util.Map;
 
 public final class ProductCountTest {
@@ -72,4 +76,18 @@ public final class ProductCountTest {
 		Assertions.assertEquals("You have 13 products.", renderedEN);
 		Assertions.assertEquals("Je hebt 13 producten.", renderedNL);
 	}
+
+	@Test
+	public void testProductCountWithPlaceholderIndex() throws IOException {
+		// The count inside the plural is placeholder 'PRODUCT_COUNT_2', which can not be guessed from 'productCount'.
+		String properties = "8573541416321293190={productCount,plural,=1{Je hebt een product.}other{Je hebt {productCount} producten.}}";
+		PropertiesIcuMsgPlugin plugin = new PropertiesIcuMsgPlugin(PropertiesIcuMsgPlugin.ParseMode.STREAMING,
+				PlaceholderIndex.fromFileSet(soy.soyFileSet()));
+		SoyMsgBundle indexedBundleNL = plugin.parseTranslatedMsgsFile(CharSource.wrap(properties));
+
+		Map<String, ?> data = Map.of("productCount", 13);
+		String renderedNL = SoyTestUtil.render(soy.soySauce(), soy.rootTemplateName(), data, indexedBundleNL);
+
+		Assertions.assertEquals("Je hebt 13 producten.", renderedNL);
+	}
 }
@@ -0,0 +1,91 @@
+/*
+ * Copyright © 2024 Service Planet Rotterdam B.V. (it@ask.serviceplanet.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.serviceplanet.closuretemplates.toolbox.maven;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+public final class ChangedFileWriterTest {
+
+	private static final FileTime EARLIER = FileTime.fromMillis(1_000_000_000_000L);
+
+	@TempDir
+	Path directory;
+
+	@Test
+	public void testNewFileIsWritten() throws IOException {
+		Path file = directory.resolve("msgs.properties");
+
+		Assertions.assertTrue(ChangedFileWriter.write(file, writer -> writer.write("1=Een\n")));
+		Assertions.assertEquals("1=Een\n", Files.readString(file, StandardCharsets.UTF_8));
+		assertNoTempFiles();
+	}
+
+	@Test
+	public void testUnchangedFileIsNotWritten() throws IOException {
+		Path file = directory.resolve("msgs.properties");
+		Files.writeString(file, "1=Een\n", StandardCharsets.UTF_8);
+		Files.setLastModifiedTime(file, EARLIER);
+
+		Assertions.assertFalse(ChangedFileWriter.write(file, writer -> writer.write("1=Een\n")));
+		Assertions.assertEquals(EARLIER, Files.getLastModifiedTime(file));
+		assertNoTempFiles();
+	}
+
+	@Test
+	public void testChangedFileIsWritten() throws IOException {
+		Path file = directory.resolve("msgs.properties");
+		Files.writeString(file, "1=Een\n", StandardCharsets.UTF_8);
+		Files.setLastModifiedTime(file, EARLIER);
+
+		Assertions.assertTrue(ChangedFileWriter.write(file, writer -> writer.write("1=Eén\n")));
+		Assertions.assertEquals("1=Eén\n", Files.readString(file, StandardCharsets.UTF_8));
+		Assertions.assertNotEquals(EARLIER, Files.getLastModifiedTime(file));
+		assertNoTempFiles();
+	}
+
+	@Test
+	public void testReplaceIfChanged() throws IOException {
+		Path file = directory.resolve("msgs.properties");
+		Files.writeString(file, "1=Een\n", StandardCharsets.UTF_8);
+
+		Path sameFile = ChangedFileWriter.createTempFileNextTo(file);
+		Files.writeString(sameFile, "1=Een\n", StandardCharsets.UTF_8);
+		Assertions.assertFalse(ChangedFileWriter.replaceIfChanged(sameFile, file));
+
+		Path changedFile = ChangedFileWriter.createTempFileNextTo(file);
+		Files.writeString(changedFile, "1=Twee\n", StandardCharsets.UTF_8);
+		Assertions.assertTrue(ChangedFileWriter.replaceIfChanged(changedFile, file));
+
+		Assertions.assertEquals("1=Twee\n", Files.readString(file, StandardCharsets.UTF_8));
+		assertNoTempFiles();
+	}
+
+	private void assertNoTempFiles() throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			Assertions.assertEquals(List.of(directory.resolve("msgs.properties")), files.toList());
+		}
+	}
+}
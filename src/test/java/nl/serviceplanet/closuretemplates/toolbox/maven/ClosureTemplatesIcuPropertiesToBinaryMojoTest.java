@@ -0,0 +1,71 @@
+/*
+ * Copyright © 2024 Service Planet Rotterdam B.V. (it@ask.serviceplanet.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.serviceplanet.closuretemplates.toolbox.maven;
+
+import com.google.common.io.Resources;
+import com.google.template.soy.msgs.SoyMsgBundle;
+import nl.serviceplanet.closuretemplates.toolbox.msgbundle.BinaryMsgBundleFormat;
+import nl.serviceplanet.closuretemplates.toolbox.msgbundle.PlaceholderIndex;
+import nl.serviceplanet.closuretemplates.toolbox.msgbundle.PropertiesIcuMsgPlugin;
+import nl.serviceplanet.closuretemplates.toolbox.msgbundle.util.SoyUtil;
+import nl.serviceplanet.closuretemplates.toolbox.util.SoyTestUtil;
+import org.apache.maven.plugin.AbstractMojoExecutionException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+public final class ClosureTemplatesIcuPropertiesToBinaryMojoTest {
+
+	// The count inside the plural is placeholder 'PRODUCT_COUNT_2', which can not be guessed from 'productCount'.
+	private static final String PROPERTIES =
+			"8573541416321293190={productCount,plural,=1{Je hebt een product.}other{Je hebt {productCount} producten.}}\n";
+
+	@TempDir
+	Path directory;
+
+	@Test
+	public void testConvertWithSoySources() throws IOException, AbstractMojoExecutionException {
+		Path soyFile = directory.resolve("product-count.soy");
+		Files.write(soyFile, Resources.toByteArray(Resources.getResource("nl/serviceplanet/closuretemplates/toolbox/product-count.soy")));
+		Path inputPath = Files.writeString(directory.resolve("messages-nl.properties"), PROPERTIES, StandardCharsets.UTF_8);
+
+		PlaceholderIndex placeholderIndex = ClosureTemplatesIcuPropertiesToBinaryMojo.indexSoySources(List.of(soyFile));
+		Path outputPath = ClosureTemplatesIcuPropertiesToBinaryMojo.convert(inputPath, directory,
+				new PropertiesIcuMsgPlugin(PropertiesIcuMsgPlugin.ParseMode.STREAMING, placeholderIndex));
+
+		Assertions.assertEquals(directory.resolve("messages-nl.soymsgs"), outputPath);
+		SoyMsgBundle msgBundle = BinaryMsgBundleFormat.load(outputPath);
+		SoyUtil.SoyCompilation soy = SoyTestUtil.compileSoyFile("product-count.soy");
+		String rendered = SoyTestUtil.render(soy.soySauce(), soy.rootTemplateName(), Map.of("productCount", 13), msgBundle);
+		Assertions.assertEquals("Je hebt 13 producten.", rendered);
+	}
+
+	@Test
+	public void testInvalidPropertiesFile() throws IOException {
+		Path inputPath = Files.writeString(directory.resolve("messages-nl.properties"), "1={unclosed\n", StandardCharsets.UTF_8);
+
+		Assertions.assertThrows(AbstractMojoExecutionException.class,
+				() -> ClosureTemplatesIcuPropertiesToBinaryMojo.convert(inputPath, directory, new PropertiesIcuMsgPlugin()));
+		Assertions.assertFalse(Files.exists(directory.resolve("messages-nl.soymsgs")));
+	}
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright © 2024 Service Planet Rotterdam B.V. (it@ask.serviceplanet.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.serviceplanet.closuretemplates.toolbox.maven;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public final class ClosureTemplatesSoyToJbcMojoTest {
+
+	private static final String CLASS_FILE = "nl/serviceplanet/Templates.class";
+
+	@TempDir
+	Path directory;
+
+	@Test
+	public void testUpToDate() throws IOException {
+		Path fingerprintPath = directory.resolve("target/soy-bytecode.fingerprint");
+		Path outputDirectory = createOutputDirectory();
+
+		Assertions.assertFalse(ClosureTemplatesSoyToJbcMojo.isUpToDate(fingerprintPath, "abc", outputDirectory));
+
+		ClosureTemplatesSoyToJbcMojo.writeFingerprint(fingerprintPath, "abc", List.of(CLASS_FILE));
+		Assertions.assertTrue(ClosureTemplatesSoyToJbcMojo.isUpToDate(fingerprintPath, "abc", outputDirectory));
+	}
+
+	@Test
+	public void testChangedInputsAreNotUpToDate() throws IOException {
+		Path fingerprintPath = directory.resolve("soy-bytecode.fingerprint");
+		Path outputDirectory = createOutputDirectory();
+
+		ClosureTemplatesSoyToJbcMojo.writeFingerprint(fingerprintPath, "abc", List.of(CLASS_FILE));
+		Assertions.assertFalse(ClosureTemplatesSoyToJbcMojo.isUpToDate(fingerprintPath, "def", outputDirectory));
+	}
+
+	@Test
+	public void testDeletedClassFileIsNotUpToDate() throws IOException {
+		Path fingerprintPath = directory.resolve("soy-bytecode.fingerprint");
+		Path outputDirectory = createOutputDirectory();
+
+		ClosureTemplatesSoyToJbcMojo.writeFingerprint(fingerprintPath, "abc", List.of(CLASS_FILE));
+		Files.delete(outputDirectory.resolve(CLASS_FILE));
+		Assertions.assertFalse(ClosureTemplatesSoyToJbcMojo.isUpToDate(fingerprintPath, "abc", outputDirectory));
+	}
+
+	@Test
+	public void testEmptyFingerprintFileIsNotUpToDate() throws IOException {
+		Path fingerprintPath = Files.createFile(directory.resolve("soy-bytecode.fingerprint"));
+
+		Assertions.assertFalse(ClosureTemplatesSoyToJbcMojo.isUpToDate(fingerprintPath, "abc", createOutputDirectory()));
+	}
+
+	private Path createOutputDirectory() throws IOException {
+		Path outputDirectory = directory.resolve("classes");
+		Path classFile = outputDirectory.resolve(CLASS_FILE);
+		Files.createDirectories(classFile.getParent());
+		Files.write(classFile, new byte[]{(byte) 0xCA, (byte) 0xFE, (byte) 0xBA, (byte) 0xBE});
+		return outputDirectory;
+	}
+}
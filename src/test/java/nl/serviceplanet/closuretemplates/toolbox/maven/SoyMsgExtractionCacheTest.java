@@ -0,0 +1,111 @@
+/*
+ * Copyright © 2024 Service Planet Rotterdam B.V. (it@ask.serviceplanet.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.serviceplanet.closuretemplates.toolbox.maven;
+
+import nl.serviceplanet.closuretemplates.toolbox.util.SoyTestUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+public final class SoyMsgExtractionCacheTest {
+
+	private static final byte[] SOY_FILE = "{namespace nl.serviceplanet}".getBytes(StandardCharsets.UTF_8);
+
+	@TempDir
+	Path directory;
+
+	@Test
+	public void testPutAndRead() throws IOException {
+		SoyMsgExtractionCache cache = new SoyMsgExtractionCache(directory, "1.0/soy");
+		String hash = cache.hash(SOY_FILE);
+		Assertions.assertFalse(cache.contains(hash));
+
+		cache.put(hash, "nl.serviceplanet", List.of(SoyTestUtil.rawTextMsg(2, null, "Twee", "Het getal twee"), SoyTestUtil.rawTextMsg(1, null, "Een", null)));
+		Assertions.assertTrue(cache.contains(hash));
+
+		// A message which is already present (used in another Soy file) is kept.
+		Map<Long, String> msgs = new LinkedHashMap<>();
+		msgs.put(1L, "1=Eerder\n");
+		Assertions.assertEquals("nl.serviceplanet", cache.readInto(hash, msgs));
+		Assertions.assertEquals(Map.of(1L, "1=Eerder\n", 2L, "# Het getal twee\n2=Twee\n"), msgs);
+	}
+
+	@Test
+	public void testFileWithoutNamespace() throws IOException {
+		SoyMsgExtractionCache cache = new SoyMsgExtractionCache(directory, "1.0/soy");
+		String hash = cache.hash(SOY_FILE);
+		cache.put(hash, null, List.of());
+
+		Map<Long, String> msgs = new LinkedHashMap<>();
+		Assertions.assertNull(cache.readInto(hash, msgs));
+		Assertions.assertTrue(msgs.isEmpty());
+	}
+
+	@Test
+	public void testHashDependsOnContentAndToolVersion() throws IOException {
+		SoyMsgExtractionCache cache = new SoyMsgExtractionCache(directory, "1.0/soy-a");
+		SoyMsgExtractionCache upgraded = new SoyMsgExtractionCache(directory, "1.1/soy-a");
+		SoyMsgExtractionCache otherSoy = new SoyMsgExtractionCache(directory, "1.0/soy-b");
+
+		Assertions.assertEquals(cache.hash(SOY_FILE), new SoyMsgExtractionCache(directory, "1.0/soy-a").hash(SOY_FILE));
+		Assertions.assertNotEquals(cache.hash(SOY_FILE), cache.hash("{namespace other}".getBytes(StandardCharsets.UTF_8)));
+		Assertions.assertNotEquals(cache.hash(SOY_FILE), upgraded.hash(SOY_FILE));
+		Assertions.assertNotEquals(cache.hash(SOY_FILE), otherSoy.hash(SOY_FILE));
+
+		cache.put(cache.hash(SOY_FILE), "nl.serviceplanet", List.of(SoyTestUtil.rawTextMsg(1, null, "Een", null)));
+		Assertions.assertFalse(upgraded.contains(upgraded.hash(SOY_FILE)));
+	}
+
+	@Test
+	public void testRetainOnly() throws IOException {
+		SoyMsgExtractionCache cache = new SoyMsgExtractionCache(directory, "1.0/soy");
+		String kept = cache.hash(SOY_FILE);
+		String removed = cache.hash("{namespace other}".getBytes(StandardCharsets.UTF_8));
+		cache.put(kept, "nl.serviceplanet", List.of());
+		cache.put(removed, "other", List.of());
+
+		cache.retainOnly(Set.of(kept));
+
+		Assertions.assertTrue(cache.contains(kept));
+		Assertions.assertFalse(cache.contains(removed));
+	}
+
+	@Test
+	public void testCorruptEntry() throws IOException {
+		SoyMsgExtractionCache cache = new SoyMsgExtractionCache(directory, "1.0/soy");
+		String hash = cache.hash(SOY_FILE);
+		cache.put(hash, "nl.serviceplanet", List.of(SoyTestUtil.rawTextMsg(1, null, "Een", null)));
+
+		try (Stream<Path> entries = Files.list(directory)) {
+			Path entry = entries.findFirst().orElseThrow();
+			Files.writeString(entry, "nl.serviceplanet\n\nnot-a-property\n", StandardCharsets.UTF_8);
+			Assertions.assertThrows(IOException.class, () -> cache.readInto(hash, new LinkedHashMap<>()));
+
+			Files.writeString(entry, "nl.serviceplanet\n\nx=Een\n", StandardCharsets.UTF_8);
+			Assertions.assertThrows(IOException.class, () -> cache.readInto(hash, new LinkedHashMap<>()));
+		}
+	}
+}
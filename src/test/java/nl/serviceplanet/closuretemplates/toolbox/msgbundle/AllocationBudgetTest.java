@@ -0,0 +1,137 @@
+/*
+ * Copyright © 2024 Service Planet Rotterdam B.V. (it@ask.serviceplanet.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.serviceplanet.closuretemplates.toolbox.msgbundle;
+
+import com.google.common.io.CharSource;
+import nl.serviceplanet.closuretemplates.toolbox.msgbundle.icu.MessageFormatLexer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+/**
+ * Fails when parsing or lexing a fixed corpus of ICU messages allocates more bytes per message than the budget.
+ * <br /><br />
+ * The budgets are roughly twice the allocation measured when they were last updated, which leaves room for differences
+ * between JVMs but still catches an accidental per-character allocation. Lower a budget when an optimization lowers
+ * the allocation, so it can not silently regress.
+ */
+public final class AllocationBudgetTest {
+	private static final Logger log = LoggerFactory.getLogger(AllocationBudgetTest.class);
+
+	private static final long PARSER_BUDGET_BYTES_PER_MSG = 4 * 1024;
+	private static final long LEXER_BUDGET_BYTES_PER_MSG = 512;
+
+	/** Number of times the corpus is processed before measuring, so the JIT compiler has kicked in. */
+	private static final int WARMUP_ROUNDS = 200;
+	private static final int MEASURED_ROUNDS = 20;
+
+	private static final List<String> CORPUS = List.of(
+			"Je zult niks bezitten en tevreden zijn.",
+			"Hallo {userName}, je hebt {messageCount} nieuwe berichten van {senderName}.",
+			"{productCount,plural,=1{Je hebt een product.}other{Je hebt # producten.}}",
+			"{GENDER,select,female{Haar naam is Chris.}male{Zijn naam is Chris.}other{Hun naam is Chris.}}",
+			"{SOURCE_GENDER,select,"
+					+ "female{{TARGET_GENDER,select,female{Ze deelde een document met haar.}male{Ze deelde een document met hem.}other{Ze deelde een document met hen.}}}"
+					+ "male{{TARGET_GENDER,select,female{Hij deelde een document met haar.}male{Hij deelde een document met hem.}other{Hij deelde een document met hen.}}}"
+					+ "other{{TARGET_GENDER,select,female{Zij deelden een document met haar.}male{Zij deelden een document met hem.}other{Zij deelden een document met hen.}}}}",
+			"{GENDER,select,female{{itemCount,plural,=1{Zij kocht een artikel.}other{Zij kocht # artikelen.}}}"
+					+ "other{{itemCount,plural,=1{Iemand kocht een artikel.}other{Iemand kocht # artikelen.}}}}"
+	);
+
+	/** Number of times the corpus is repeated (with different message ids) in the properties file. */
+	private static final int CORPUS_REPEATS = 100;
+
+	private static com.sun.management.ThreadMXBean threadMXBean;
+	private static CharSource propertiesFile;
+	private static int numMsgs;
+
+	@BeforeAll
+	public static void setup() {
+		Assumptions.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean,
+				"JVM does not provide com.sun.management.ThreadMXBean");
+		threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		Assumptions.assumeTrue(threadMXBean.isThreadAllocatedMemorySupported(),
+				"JVM does not support measuring allocated memory per thread");
+		threadMXBean.setThreadAllocatedMemoryEnabled(true);
+
+		StringBuilder properties = new StringBuilder();
+		long msgId = 1;
+		for (int i = 0; i < CORPUS_REPEATS; i++) {
+			for (String icuMessage : CORPUS) {
+				properties.append("# Description of message ").append(msgId).append(".\n");
+				properties.append(msgId++).append('=').append(icuMessage).append('\n');
+			}
+		}
+		propertiesFile = CharSource.wrap(properties.toString());
+		numMsgs = CORPUS_REPEATS * CORPUS.size();
+	}
+
+	@Test
+	public void testParserAllocationBudget() {
+		long bytesPerMsg = measureBytesPerMsg(() -> {
+			try {
+				PropertiesIcuParser.parseIcuMsgsPropertiesFile(propertiesFile);
+			} catch (IOException exc) {
+				throw new IllegalStateException(exc);
+			}
+		}, numMsgs);
+
+		log.info("PropertiesIcuParser allocated {} bytes per message (budget {}).", bytesPerMsg, PARSER_BUDGET_BYTES_PER_MSG);
+		Assertions.assertTrue(bytesPerMsg <= PARSER_BUDGET_BYTES_PER_MSG, String.format(
+				"PropertiesIcuParser allocated %d bytes per message, which exceeds the budget of %d.",
+				bytesPerMsg, PARSER_BUDGET_BYTES_PER_MSG));
+	}
+
+	@Test
+	public void testLexerAllocationBudget() {
+		long bytesPerMsg = measureBytesPerMsg(() -> {
+			for (String icuMessage : CORPUS) {
+				new MessageFormatLexer(icuMessage).tokenizeInPlace();
+			}
+		}, CORPUS.size());
+
+		log.info("MessageFormatLexer allocated {} bytes per message (budget {}).", bytesPerMsg, LEXER_BUDGET_BYTES_PER_MSG);
+		Assertions.assertTrue(bytesPerMsg <= LEXER_BUDGET_BYTES_PER_MSG, String.format(
+				"MessageFormatLexer allocated %d bytes per message, which exceeds the budget of %d.",
+				bytesPerMsg, LEXER_BUDGET_BYTES_PER_MSG));
+	}
+
+	/**
+	 * Returns the lowest number of bytes allocated per message by one round, after warming up.
+	 */
+	private static long measureBytesPerMsg(Runnable round, int msgsPerRound) {
+		for (int i = 0; i < WARMUP_ROUNDS; i++) {
+			round.run();
+		}
+
+		long threadId = Thread.currentThread().threadId();
+		long minBytes = Long.MAX_VALUE;
+		for (int i = 0; i < MEASURED_ROUNDS; i++) {
+			long before = threadMXBean.getThreadAllocatedBytes(threadId);
+			round.run();
+			long after = threadMXBean.getThreadAllocatedBytes(threadId);
+			minBytes = Math.min(minBytes, after - before);
+		}
+		return minBytes / msgsPerRound;
+	}
+}
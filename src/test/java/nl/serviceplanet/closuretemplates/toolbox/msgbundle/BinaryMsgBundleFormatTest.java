@@ -0,0 +1,140 @@
+/*
+ * Copyright © 2024 Service Planet Rotterdam B.V. (it@ask.serviceplanet.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.serviceplanet.closuretemplates.toolbox.msgbundle;
+
+import com.google.common.io.CharSource;
+import com.google.template.soy.msgs.SoyMsgBundle;
+import com.google.template.soy.msgs.SoyMsgException;
+import com.google.template.soy.msgs.restricted.SoyMsg;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+public final class BinaryMsgBundleFormatTest {
+
+	private static final String PROPERTIES = """
+			1=Je zult niks bezitten en tevreden zijn.
+			2=Hallo {userName}, je hebt {messageCount} nieuwe berichten.
+			3={productCount,plural,=1{Je hebt een product.}other{Je hebt # producten.}}
+			4={GENDER,select,female{Haar naam is {NAME}.}male{Zijn naam is {NAME}.}other{Hun naam is {NAME}.}}
+			""";
+
+	/** Offset of the message count in a bundle without a locale: magic, version and the null locale. */
+	private static final int MESSAGE_COUNT_OFFSET = 4 + 2 + 4;
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	public void testRoundTripWithoutLocale() throws IOException {
+		SoyMsgBundle msgBundle = PropertiesIcuParser.parseIcuMsgsPropertiesFile(CharSource.wrap(PROPERTIES));
+
+		SoyMsgBundle read = BinaryMsgBundleFormat.read(ByteBuffer.wrap(write(msgBundle)));
+
+		Assertions.assertNull(read.getLocaleString());
+		assertSameMsgs(msgBundle, read);
+	}
+
+	@Test
+	public void testRoundTripWithLocale() throws IOException {
+		LongMapSoyMsgBundle.Builder builder = LongMapSoyMsgBundle.builder("nl");
+		for (SoyMsg msg : PropertiesIcuParser.parseIcuMsgsPropertiesFile(CharSource.wrap(PROPERTIES))) {
+			builder.add(msg.toBuilder().setLocaleString("nl").build());
+		}
+		SoyMsgBundle msgBundle = builder.build();
+		Path file = Files.write(tempDir.resolve("nl.soymsgs"), write(msgBundle));
+
+		SoyMsgBundle loaded = BinaryMsgBundleFormat.load(file);
+
+		Assertions.assertEquals("nl", loaded.getLocaleString());
+		Assertions.assertEquals("nl", loaded.getMsg(1).getLocaleString());
+		assertSameMsgs(msgBundle, loaded);
+	}
+
+	@Test
+	public void testCorruptBundles() throws IOException {
+		byte[] valid = write(PropertiesIcuParser.parseIcuMsgsPropertiesFile(CharSource.wrap(PROPERTIES)));
+
+		// Truncated.
+		assertCorrupt(Arrays.copyOf(valid, valid.length - 3));
+		// Message count which does not fit in the file.
+		assertCorrupt(withInt(valid, MESSAGE_COUNT_OFFSET, Integer.MAX_VALUE));
+		assertCorrupt(withInt(valid, MESSAGE_COUNT_OFFSET, -5));
+		// Negative locale string length other than -1.
+		assertCorrupt(withInt(valid, 6, -2));
+	}
+
+	@Test
+	public void testInvalidPluralCaseType() throws IOException {
+		byte[] valid = write(PropertiesIcuParser.parseIcuMsgsPropertiesFile(CharSource.wrap("1={n,plural,=1{Een.}other{Meer.}}")));
+		// Part trees start after the count, one id and one offset: part count, plural tag, var name "N_1", offset,
+		// case count, followed by the type of the first case.
+		int firstCaseType = MESSAGE_COUNT_OFFSET + 4 + 8 + 4 + 4 + 1 + (4 + 3) + 4 + 4;
+		// The format owns the codes: explicit is 0 and other is 6, whatever the order of the Soy enum.
+		Assertions.assertEquals(0, valid[firstCaseType]);
+		Assertions.assertEquals(6, valid[firstCaseType + 1 + 8 + 4 + 1 + 4 + 4]);
+
+		byte[] corrupt = valid.clone();
+		corrupt[firstCaseType] = (byte) -1;
+		assertCorrupt(corrupt);
+		corrupt[firstCaseType] = (byte) 100;
+		assertCorrupt(corrupt);
+	}
+
+	@Test
+	public void testNullStringInPart() throws IOException {
+		// Part trees start after the count, one id and one offset: part count and tag, followed by the string length.
+		int firstStringLength = MESSAGE_COUNT_OFFSET + 4 + 8 + 4 + 4 + 1;
+
+		byte[] rawText = write(PropertiesIcuParser.parseIcuMsgsPropertiesFile(CharSource.wrap("1=Een.")));
+		Assertions.assertEquals(4, ByteBuffer.wrap(rawText).getInt(firstStringLength));
+		assertCorrupt(withInt(rawText, firstStringLength, -1));
+
+		byte[] placeholder = write(PropertiesIcuParser.parseIcuMsgsPropertiesFile(CharSource.wrap("1={NAME}")));
+		Assertions.assertEquals(4, ByteBuffer.wrap(placeholder).getInt(firstStringLength));
+		assertCorrupt(withInt(placeholder, firstStringLength, -1));
+	}
+
+	private static byte[] write(SoyMsgBundle msgBundle) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		BinaryMsgBundleFormat.write(msgBundle, out);
+		return out.toByteArray();
+	}
+
+	private static byte[] withInt(byte[] bytes, int offset, int value) {
+		byte[] copy = bytes.clone();
+		ByteBuffer.wrap(copy).putInt(offset, value);
+		return copy;
+	}
+
+	private static void assertCorrupt(byte[] bytes) {
+		Assertions.assertThrows(SoyMsgException.class, () -> BinaryMsgBundleFormat.read(ByteBuffer.wrap(bytes)));
+	}
+
+	private static void assertSameMsgs(SoyMsgBundle expected, SoyMsgBundle actual) {
+		Assertions.assertEquals(expected.getNumMsgs(), actual.getNumMsgs());
+		for (SoyMsg msg : expected) {
+			Assertions.assertEquals(msg.getParts(), actual.getMsg(msg.getId()).getParts());
+		}
+	}
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright © 2024 Service Planet Rotterdam B.V. (it@ask.serviceplanet.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.serviceplanet.closuretemplates.toolbox.msgbundle;
+
+import com.google.common.io.CharSource;
+import com.google.template.soy.msgs.SoyMsgBundle;
+import nl.serviceplanet.closuretemplates.toolbox.util.SoyTestUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public final class FallbackChainSoyMsgBundleTest {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	public void testMostSpecificBundleTakesPrecedence() {
+		SoyMsgBundle nlBE = LongMapSoyMsgBundle.builder("nl-BE")
+				.add(SoyTestUtil.rawTextMsg(1, "nl-BE", "Een (BE)", null))
+				.add(SoyTestUtil.rawTextMsg(2, "nl-BE", "Twee (BE)", null))
+				.build();
+		SoyMsgBundle nl = LongMapSoyMsgBundle.builder("nl")
+				.add(SoyTestUtil.rawTextMsg(3, "nl", "Drie", null))
+				.add(SoyTestUtil.rawTextMsg(2, "nl", "Twee", null))
+				.build();
+
+		FallbackChainSoyMsgBundle msgBundle = FallbackChainSoyMsgBundle.of(List.of(nlBE, nl));
+
+		Assertions.assertEquals("nl-BE", msgBundle.getLocaleString());
+		Assertions.assertEquals(3, msgBundle.getNumMsgs());
+		Assertions.assertSame(nlBE.getMsg(1), msgBundle.getMsg(1));
+		Assertions.assertSame(nlBE.getMsg(2), msgBundle.getMsg(2));
+		Assertions.assertSame(nl.getMsg(3), msgBundle.getMsg(3));
+		// A message keeps the locale of the bundle it was taken from.
+		Assertions.assertEquals("nl", msgBundle.getMsg(3).getLocaleString());
+		Assertions.assertNull(msgBundle.getMsg(4));
+
+		List<Long> ids = new ArrayList<>();
+		msgBundle.forEach(msg -> ids.add(msg.getId()));
+		Assertions.assertEquals(List.of(1L, 2L, 3L), ids);
+	}
+
+	@Test
+	public void testInvalidChain() throws IOException {
+		Assertions.assertThrows(IllegalArgumentException.class, () -> FallbackChainSoyMsgBundle.of(List.of()));
+
+		LazyPropertiesIcuMsgBundle lazy = LazyPropertiesIcuMsgBundle.load(CharSource.wrap("1=Een\n"));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> FallbackChainSoyMsgBundle.of(List.of(SoyMsgBundle.EMPTY, lazy)));
+	}
+
+	@Test
+	public void testWrappedReloadingBundleIsRejected() throws IOException {
+		Path file = Files.writeString(directory.resolve("messages.properties"), "1=Een\n", StandardCharsets.UTF_8);
+		try (ReloadingSoyMsgBundle reloading = ReloadingSoyMsgBundle.watch(file)) {
+			SoyMsgBundle metering = new MeteringSoyMsgBundle("test", reloading);
+			SoyMsgBundle verbose = new VerboseSoyMsgBundle("test", metering);
+
+			Assertions.assertThrows(IllegalArgumentException.class, () -> FallbackChainSoyMsgBundle.of(List.of(reloading)));
+			Assertions.assertThrows(IllegalArgumentException.class, () -> FallbackChainSoyMsgBundle.of(List.of(metering)));
+			Assertions.assertThrows(IllegalArgumentException.class, () -> FallbackChainSoyMsgBundle.of(List.of(SoyMsgBundle.EMPTY, verbose)));
+		}
+
+		// A wrapper around a bundle which is not live can be merged.
+		SoyMsgBundle eager = LongMapSoyMsgBundle.builder("nl").add(SoyTestUtil.rawTextMsg(1, "nl", "Een", null)).build();
+		Assertions.assertEquals(1, FallbackChainSoyMsgBundle.of(List.of(new VerboseSoyMsgBundle("test", eager))).getNumMsgs());
+	}
+
+	@Test
+	public void testShardedBundleIsRejected() throws IOException {
+		Map<String, String> files = Map.of(
+				ShardedSoyMsgBundle.INDEX_FILE_NAME, "1=shop\n",
+				ShardedSoyMsgBundle.shardFileName("shop"), "1=Winkel\n"
+		);
+		ShardedSoyMsgBundle sharded = ShardedSoyMsgBundle.load(fileName -> CharSource.wrap(files.get(fileName)));
+
+		Assertions.assertThrows(IllegalArgumentException.class, () -> FallbackChainSoyMsgBundle.of(List.of(sharded)));
+		Assertions.assertThrows(IllegalArgumentException.class,
+				() -> FallbackChainSoyMsgBundle.of(List.of(new MeteringSoyMsgBundle("test", sharded))));
+		Assertions.assertEquals(0, sharded.getLoadedShardCount());
+	}
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright © 2024 Service Planet Rotterdam B.V. (it@ask.serviceplanet.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.serviceplanet.closuretemplates.toolbox.msgbundle;
+
+import com.google.template.soy.msgs.SoyMsgException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public final class IcuMessageParserTest {
+
+	@Test
+	public void testInvalidExplicitPluralValue() {
+		SoyMsgException exc = Assertions.assertThrows(SoyMsgException.class,
+				() -> IcuMessageParser.parse("{productCount,plural,=x{Een.}other{Meer.}}"));
+		Assertions.assertTrue(exc.getMessage().contains("'=x'"), exc.getMessage());
+
+		Assertions.assertThrows(SoyMsgException.class, () -> IcuMessageParser.parse("{productCount,plural,={Een.}other{Meer.}}"));
+	}
+
+	@Test
+	public void testUnknownPluralType() {
+		Assertions.assertThrows(SoyMsgException.class, () -> IcuMessageParser.parse("{productCount,plural,lots{Veel.}other{Meer.}}"));
+	}
+
+	@Test
+	public void testInvalidReference() {
+		SoyMsgException exc = Assertions.assertThrows(SoyMsgException.class, () -> IcuMessageParser.parse("Hallo {user-name}."));
+		Assertions.assertTrue(exc.getMessage().contains("position"), exc.getMessage());
+	}
+}
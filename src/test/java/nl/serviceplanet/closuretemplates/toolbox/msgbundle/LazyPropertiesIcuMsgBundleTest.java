@@ -0,0 +1,77 @@
+/*
+ * Copyright © 2024 Service Planet Rotterdam B.V. (it@ask.serviceplanet.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.serviceplanet.closuretemplates.toolbox.msgbundle;
+
+import com.google.common.io.CharSource;
+import com.google.template.soy.msgs.SoyMsgException;
+import com.google.template.soy.msgs.restricted.SoyMsg;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public final class LazyPropertiesIcuMsgBundleTest {
+
+	@Test
+	public void testMessageIsParsedOnFirstLookup() throws IOException {
+		// Message 2 is invalid, which must not be noticed until it is looked up.
+		LazyPropertiesIcuMsgBundle msgBundle = LazyPropertiesIcuMsgBundle.load(CharSource.wrap("""
+				# Description.
+				1={productCount,plural,=1{Een product.}other{# producten.}}
+				2={unclosed
+				"""));
+
+		Assertions.assertEquals(2, msgBundle.getNumMsgs());
+
+		SoyMsg msg = msgBundle.getMsg(1);
+		Assertions.assertEquals(PropertiesIcuParser.parseIcuMsg(1, "{productCount,plural,=1{Een product.}other{# producten.}}").getParts(), msg.getParts());
+		Assertions.assertSame(msg, msgBundle.getMsg(1));
+		Assertions.assertNull(msgBundle.getMsg(3));
+
+		Assertions.assertThrows(SoyMsgException.class, () -> msgBundle.getMsg(2));
+	}
+
+	@Test
+	public void testInvalidMessageIsParsedOnce() throws IOException {
+		LazyPropertiesIcuMsgBundle msgBundle = LazyPropertiesIcuMsgBundle.load(CharSource.wrap("7={unclosed\n"));
+
+		SoyMsgException first = Assertions.assertThrows(SoyMsgException.class, () -> msgBundle.getMsg(7));
+		Assertions.assertTrue(first.getMessage().contains("'7'"), first.getMessage());
+
+		SoyMsgException second = Assertions.assertThrows(SoyMsgException.class, () -> msgBundle.getMsg(7));
+		Assertions.assertEquals(first.getMessage(), second.getMessage());
+		// Not parsed again: the cause is the failure of the first parse.
+		Assertions.assertSame(first.getCause(), second.getCause());
+
+		Assertions.assertThrows(SoyMsgException.class, () -> msgBundle.iterator().next());
+	}
+
+	@Test
+	public void testIterationOrder() throws IOException {
+		LazyPropertiesIcuMsgBundle msgBundle = LazyPropertiesIcuMsgBundle.load(CharSource.wrap("3=Drie\n1=Een\n2=Twee\n"));
+
+		List<Long> ids = new ArrayList<>();
+		msgBundle.forEach(msg -> ids.add(msg.getId()));
+		Assertions.assertEquals(List.of(3L, 1L, 2L), ids);
+	}
+
+	@Test
+	public void testDuplicateMessageId() {
+		Assertions.assertThrows(IllegalStateException.class, () -> LazyPropertiesIcuMsgBundle.load(CharSource.wrap("1=Een\n1=Nog een\n")));
+	}
+}
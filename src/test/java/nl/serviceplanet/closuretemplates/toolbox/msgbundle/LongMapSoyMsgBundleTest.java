@@ -0,0 +1,55 @@
+/*
+ * Copyright © 2024 Service Planet Rotterdam B.V. (it@ask.serviceplanet.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.serviceplanet.closuretemplates.toolbox.msgbundle;
+
+import nl.serviceplanet.closuretemplates.toolbox.util.SoyTestUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public final class LongMapSoyMsgBundleTest {
+
+	@Test
+	public void testLookupAndIterationOrder() {
+		LongMapSoyMsgBundle msgBundle = LongMapSoyMsgBundle.builder("nl")
+				.add(SoyTestUtil.rawTextMsg(3, "nl", "Drie", null))
+				.add(SoyTestUtil.rawTextMsg(1, "nl", "Een", null))
+				.put(SoyTestUtil.rawTextMsg(3, "nl", "Drie!", null))
+				.build();
+
+		Assertions.assertEquals("nl", msgBundle.getLocaleString());
+		Assertions.assertEquals(2, msgBundle.getNumMsgs());
+		Assertions.assertEquals("Drie!", msgBundle.getMsg(3).getParts().get(0).toString());
+		Assertions.assertNull(msgBundle.getMsg(2));
+
+		List<Long> ids = new ArrayList<>();
+		msgBundle.forEach(msg -> ids.add(msg.getId()));
+		Assertions.assertEquals(List.of(3L, 1L), ids);
+	}
+
+	@Test
+	public void testInvalidMessages() {
+		LongMapSoyMsgBundle.Builder builder = LongMapSoyMsgBundle.builder(null).add(SoyTestUtil.rawTextMsg(1, null, "Een", null));
+
+		Assertions.assertThrows(IllegalStateException.class, () -> builder.add(SoyTestUtil.rawTextMsg(1, null, "Nog een", null)));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> builder.add(SoyTestUtil.rawTextMsg(2, "nl", "Twee", null)));
+
+		builder.build();
+		Assertions.assertThrows(NullPointerException.class, () -> builder.add(SoyTestUtil.rawTextMsg(3, null, "Drie", null)));
+	}
+}
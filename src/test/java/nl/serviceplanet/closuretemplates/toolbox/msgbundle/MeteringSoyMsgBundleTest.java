@@ -0,0 +1,85 @@
+/*
+ * Copyright © 2024 Service Planet Rotterdam B.V. (it@ask.serviceplanet.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.serviceplanet.closuretemplates.toolbox.msgbundle;
+
+import com.google.common.io.CharSource;
+import com.google.template.soy.msgs.SoyMsgBundle;
+import nl.serviceplanet.closuretemplates.toolbox.msgbundle.MeteringSoyMsgBundleMXBean.MsgLookupCount;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+public final class MeteringSoyMsgBundleTest {
+
+	@Test
+	public void testTopLookups() throws IOException {
+		MeteringSoyMsgBundle msgBundle = new MeteringSoyMsgBundle("test", load(), 2);
+		lookup(msgBundle, 1, 3);
+		lookup(msgBundle, 2, 5);
+		lookup(msgBundle, 3, 1);
+		lookup(msgBundle, 10, 2);
+
+		Assertions.assertEquals(9, msgBundle.getHitCount());
+		Assertions.assertEquals(2, msgBundle.getMissCount());
+		Assertions.assertEquals(11, msgBundle.getLookupCount());
+		Assertions.assertEquals(List.of(new MsgLookupCount(2, 5), new MsgLookupCount(1, 3)), msgBundle.getTopHits());
+		Assertions.assertEquals(List.of(new MsgLookupCount(10, 2)), msgBundle.getTopMisses());
+	}
+
+	@Test
+	public void testTotalsIncludeUntrackedLookups() throws IOException {
+		MeteringSoyMsgBundle msgBundle = new MeteringSoyMsgBundle("test", load());
+		// Far more distinct ids than are tracked for a bundle of three messages.
+		for (long msgId = 100; msgId < 10_100; msgId++) {
+			msgBundle.getMsg(msgId);
+		}
+
+		Assertions.assertEquals(10_000, msgBundle.getMissCount());
+		Assertions.assertTrue(msgBundle.getUntrackedLookupCount() > 0);
+		Assertions.assertEquals(0, msgBundle.getHitCount());
+	}
+
+	@Test
+	public void testMBean() throws Exception {
+		MeteringSoyMsgBundle msgBundle = new MeteringSoyMsgBundle("mbean-test", load());
+		lookup(msgBundle, 2, 4);
+
+		ObjectName objectName = msgBundle.registerMBean();
+		try {
+			CompositeData[] topHits = (CompositeData[]) ManagementFactory.getPlatformMBeanServer().getAttribute(objectName, "TopHits");
+			Assertions.assertEquals(1, topHits.length);
+			Assertions.assertEquals(2L, topHits[0].get("msgId"));
+			Assertions.assertEquals(4L, topHits[0].get("count"));
+		} finally {
+			msgBundle.unregisterMBean();
+		}
+	}
+
+	private static SoyMsgBundle load() throws IOException {
+		return PropertiesIcuParser.parseIcuMsgsPropertiesFile(CharSource.wrap("1=Een\n2=Twee\n3=Drie\n"));
+	}
+
+	private static void lookup(MeteringSoyMsgBundle msgBundle, long msgId, int times) {
+		for (int i = 0; i < times; i++) {
+			msgBundle.getMsg(msgId);
+		}
+	}
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright © 2024 Service Planet Rotterdam B.V. (it@ask.serviceplanet.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.serviceplanet.closuretemplates.toolbox.msgbundle;
+
+import com.google.common.io.CharSource;
+import com.google.template.soy.msgs.SoyMsgBundle;
+import com.google.template.soy.msgs.SoyMsgBundleHandler;
+import com.google.template.soy.msgs.restricted.SoyMsg;
+import com.google.template.soy.msgs.restricted.SoyMsgBundleImpl;
+import nl.serviceplanet.closuretemplates.toolbox.msgbundle.util.SoyUtil;
+import nl.serviceplanet.closuretemplates.toolbox.util.SoyTestUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+public final class PropertiesIcuGeneratorTest {
+
+	private static final String HEADER = """
+			# WARNING! AUTO-GENERATED BY nl.serviceplanet.closuretemplates.toolbox.msgbundle.PropertiesIcuGenerator
+			# N.B.: THIS FILE MUST BE REGENERATED UPON **ANY** CHANGE IN THE TEMPLATE.
+			""";
+
+	@Test
+	public void testGenerateToAppendable() throws IOException {
+		SoyMsgBundle msgBundle = new SoyMsgBundleImpl(null, List.of(
+				SoyTestUtil.rawTextMsg(3, null, "Drie", null),
+				SoyTestUtil.rawTextMsg(1, null, "Een", "Het getal een"),
+				SoyTestUtil.rawTextMsg(2, null, "Twee", " ")
+		));
+
+		StringWriter properties = new StringWriter();
+		PropertiesIcuGenerator.generateProperties(msgBundle, properties);
+
+		// Ordered by id, with the description (if not blank) as comment.
+		Assertions.assertEquals(HEADER + """
+
+				# Het getal een
+				1=Een
+
+				2=Twee
+
+				3=Drie
+				""", properties.toString());
+		Assertions.assertEquals(properties.toString(), PropertiesIcuGenerator.generateProperties(msgBundle).toString());
+	}
+
+	@Test
+	public void testMessagesAreAppendedOneByOne() throws IOException {
+		List<SoyMsg> msgs = new ArrayList<>();
+		for (int id = 0; id < 1000; id++) {
+			msgs.add(SoyTestUtil.rawTextMsg(id, null, "Bericht " + id, null));
+		}
+		SoyMsgBundle msgBundle = new SoyMsgBundleImpl(null, msgs);
+
+		// Every message is appended as it is generated, nothing is buffered until the end.
+		List<Integer> lengths = new ArrayList<>();
+		StringBuilder out = new StringBuilder();
+		PropertiesIcuGenerator.generateProperties(msgBundle, new Appendable() {
+			@Override
+			public Appendable append(CharSequence csq) {
+				lengths.add(csq.length());
+				out.append(csq);
+				return this;
+			}
+
+			@Override
+			public Appendable append(CharSequence csq, int start, int end) {
+				return append(csq.subSequence(start, end));
+			}
+
+			@Override
+			public Appendable append(char c) {
+				lengths.add(1);
+				out.append(c);
+				return this;
+			}
+		});
+
+		Assertions.assertTrue(lengths.size() > msgs.size());
+		Assertions.assertTrue(lengths.stream().allMatch(length -> length < 100), "a chunk was buffered: " + lengths);
+		Assertions.assertTrue(out.toString().endsWith("\n999=Bericht 999\n"));
+	}
+
+	@Test
+	public void testInvalidMessageLeavesNoOutput() {
+		SoyMsgBundle msgBundle = new SoyMsgBundleImpl(null, List.of(
+				SoyTestUtil.rawTextMsg(1, null, "Een", null),
+				SoyTestUtil.rawTextMsg(2, null, "Twee\nregels", null)
+		));
+
+		StringBuilder properties = new StringBuilder();
+		Assertions.assertThrows(IllegalStateException.class, () -> PropertiesIcuGenerator.generateProperties(msgBundle, properties));
+		Assertions.assertEquals("", properties.toString());
+
+		SoyMsgBundle untrimmedDesc = new SoyMsgBundleImpl(null, List.of(SoyTestUtil.rawTextMsg(1, null, "Een", "Het getal een ")));
+		Assertions.assertThrows(IllegalStateException.class, () -> PropertiesIcuGenerator.appendMessage(untrimmedDesc.getMsg(1), properties));
+		Assertions.assertEquals("", properties.toString());
+	}
+
+	@Test
+	public void testExtractSoyMsgBundleFromFileSet() throws IOException {
+		SoyUtil.SoyCompilation soy = SoyTestUtil.compileSoyFile("product-count.soy");
+		SoyMsgBundleHandler.OutputFileOptions options = new SoyMsgBundleHandler.OutputFileOptions();
+		options.setSourceLocaleString("en");
+
+		PropertiesIcuGenerator.SoyMsgBundleDefinition definition =
+				PropertiesIcuGenerator.extractSoyMsgBundleFromFileSet(soy.soyFileSet(), options);
+
+		Assertions.assertEquals(2, definition.msgBundle().getNumMsgs());
+		Assertions.assertEquals(PropertiesIcuGenerator.generateProperties(definition.msgBundle()), definition.propertiesFileContent());
+
+		// The generated file can be parsed again, with the ids of the extracted messages.
+		SoyMsgBundle parsed = PropertiesIcuParser.parseIcuMsgsPropertiesFile(CharSource.wrap(definition.propertiesFileContent()));
+		Assertions.assertEquals(Set.of(7558128443763568640L, 8573541416321293190L), ids(parsed));
+		Assertions.assertEquals(ids(definition.msgBundle()), ids(parsed));
+	}
+
+	private static Set<Long> ids(SoyMsgBundle msgBundle) {
+		return StreamSupport.stream(msgBundle.spliterator(), false).map(SoyMsg::getId).collect(Collectors.toSet());
+	}
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright © 2024 Service Planet Rotterdam B.V. (it@ask.serviceplanet.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.serviceplanet.closuretemplates.toolbox.msgbundle;
+
+import com.google.common.io.CharSource;
+import com.google.template.soy.msgs.SoyMsgBundle;
+import com.google.template.soy.msgs.restricted.SoyMsg;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+
+public final class PropertiesIcuParserTest {
+
+	private static final String[] LINE_BREAKS = {"\n", "\r\n", "\r"};
+
+	@Test
+	public void testParallelParsingEqualsSequentialParsing() throws IOException {
+		// Large enough to be split into several chunks, with every kind of line break.
+		StringBuilder properties = new StringBuilder();
+		for (int i = 1; i <= 5000; i++) {
+			String lineBreak = LINE_BREAKS[i % LINE_BREAKS.length];
+			properties.append("# Description of message ").append(i).append('.').append(lineBreak);
+			properties.append(i).append("={productCount,plural,=1{Product ").append(i).append(".}other{# producten.}}").append(lineBreak);
+		}
+		CharSource propertiesFile = CharSource.wrap(properties);
+
+		SoyMsgBundle sequential = PropertiesIcuParser.parseIcuMsgsPropertiesFile(propertiesFile);
+		SoyMsgBundle parallel = PropertiesIcuParser.parseIcuMsgsPropertiesFileInParallel(propertiesFile, ForkJoinPool.commonPool());
+
+		Assertions.assertEquals(5000, sequential.getNumMsgs());
+		Assertions.assertEquals(sequential.getNumMsgs(), parallel.getNumMsgs());
+		for (SoyMsg msg : sequential) {
+			Assertions.assertEquals(msg.getParts(), parallel.getMsg(msg.getId()).getParts());
+		}
+	}
+
+	@Test
+	public void testLoneCarriageReturnEndsLine() throws IOException {
+		CharSource propertiesFile = CharSource.wrap("# Comment\r1=Een\r2=Twee");
+
+		SoyMsgBundle parallel = PropertiesIcuParser.parseIcuMsgsPropertiesFileInParallel(propertiesFile, ForkJoinPool.commonPool());
+
+		Assertions.assertEquals(2, parallel.getNumMsgs());
+		Assertions.assertEquals("Een", parallel.getMsg(1).getParts().get(0).toString());
+		Assertions.assertEquals("Twee", parallel.getMsg(2).getParts().get(0).toString());
+	}
+}
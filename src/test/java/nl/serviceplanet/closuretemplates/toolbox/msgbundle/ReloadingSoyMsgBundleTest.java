@@ -0,0 +1,135 @@
+/*
+ * Copyright © 2024 Service Planet Rotterdam B.V. (it@ask.serviceplanet.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.serviceplanet.closuretemplates.toolbox.msgbundle;
+
+import com.google.template.soy.msgs.restricted.SoyMsg;
+import com.google.template.soy.msgs.restricted.SoyMsgRawTextPart;
+import nl.serviceplanet.closuretemplates.toolbox.msgbundle.util.SoyUtil;
+import nl.serviceplanet.closuretemplates.toolbox.util.SoyTestUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+public final class ReloadingSoyMsgBundleTest {
+	private static final long TIMEOUT_MILLIS = 30_000;
+
+	@TempDir
+	Path directory;
+
+	@Test
+	public void testUnchangedMessagesAreReused() throws IOException {
+		Path file = directory.resolve("messages.properties");
+		Files.writeString(file, "1=Een\n2=Twee\n", StandardCharsets.UTF_8);
+
+		try (ReloadingSoyMsgBundle msgBundle = ReloadingSoyMsgBundle.watch(file)) {
+			SoyMsg one = msgBundle.getMsg(1);
+			SoyMsg two = msgBundle.getMsg(2);
+
+			Files.writeString(file, "1=Een\n2=Zwei\n3=Drei\n", StandardCharsets.UTF_8);
+			Assertions.assertTrue(msgBundle.reloadIfChanged());
+
+			Assertions.assertEquals(3, msgBundle.getNumMsgs());
+			Assertions.assertSame(one, msgBundle.getMsg(1));
+			Assertions.assertNotSame(two, msgBundle.getMsg(2));
+			Assertions.assertEquals(List.of(SoyMsgRawTextPart.of("Zwei")), msgBundle.getMsg(2).getParts());
+
+			Assertions.assertFalse(msgBundle.reloadIfChanged());
+			Assertions.assertSame(one, msgBundle.getMsg(1));
+		}
+	}
+
+	@Test
+	public void testInvalidFileKeepsPreviousVersion() throws IOException {
+		Path file = directory.resolve("messages.properties");
+		Files.writeString(file, "1=Een\n", StandardCharsets.UTF_8);
+
+		try (ReloadingSoyMsgBundle msgBundle = ReloadingSoyMsgBundle.watch(file)) {
+			Files.writeString(file, "1={unclosed\n", StandardCharsets.UTF_8);
+			Assertions.assertThrows(RuntimeException.class, msgBundle::reloadIfChanged);
+
+			Assertions.assertEquals(List.of(SoyMsgRawTextPart.of("Een")), msgBundle.getMsg(1).getParts());
+		}
+	}
+
+	@Test
+	public void testWatcherPicksUpModification() throws Exception {
+		Path file = directory.resolve("messages.properties");
+		Files.writeString(file, "1=Een\n", StandardCharsets.UTF_8);
+
+		try (ReloadingSoyMsgBundle msgBundle = ReloadingSoyMsgBundle.watch(file)) {
+			Files.writeString(file, "1=Eins\n", StandardCharsets.UTF_8);
+
+			awaitCondition(() -> List.of(SoyMsgRawTextPart.of("Eins")).equals(msgBundle.getMsg(1).getParts()));
+		}
+	}
+
+	@Test
+	public void testWatcherPicksUpSymbolicLinkSwap() throws Exception {
+		// Mimics a Kubernetes ConfigMap mount: messages.properties -> ..data/messages.properties, where ..data is a
+		// symbolic link which is atomically replaced by a link to a new directory on every update.
+		Path version1 = Files.createDirectory(directory.resolve("..version1"));
+		Path version2 = Files.createDirectory(directory.resolve("..version2"));
+		Files.writeString(version1.resolve("messages.properties"), "1=Een\n", StandardCharsets.UTF_8);
+		Files.writeString(version2.resolve("messages.properties"), "1=Eins\n", StandardCharsets.UTF_8);
+
+		Path data = directory.resolve("..data");
+		Files.createSymbolicLink(data, version1.getFileName());
+		Path file = Files.createSymbolicLink(directory.resolve("messages.properties"), Path.of("..data", "messages.properties"));
+
+		try (ReloadingSoyMsgBundle msgBundle = ReloadingSoyMsgBundle.watch(file)) {
+			Assertions.assertEquals(List.of(SoyMsgRawTextPart.of("Een")), msgBundle.getMsg(1).getParts());
+
+			Path dataTmp = Files.createSymbolicLink(directory.resolve("..data_tmp"), version2.getFileName());
+			Files.move(dataTmp, data, StandardCopyOption.ATOMIC_MOVE);
+
+			awaitCondition(() -> List.of(SoyMsgRawTextPart.of("Eins")).equals(msgBundle.getMsg(1).getParts()));
+		}
+	}
+
+	@Test
+	public void testPlaceholderIndexIsAppliedOnReload() throws IOException {
+		SoyUtil.SoyCompilation soy = SoyTestUtil.compileSoyFile("product-count.soy");
+		PlaceholderIndex placeholderIndex = PlaceholderIndex.fromFileSet(soy.soyFileSet());
+
+		Path file = directory.resolve("messages.properties");
+		Files.writeString(file, "", StandardCharsets.UTF_8);
+
+		try (ReloadingSoyMsgBundle msgBundle = ReloadingSoyMsgBundle.watch(file, placeholderIndex)) {
+			Files.writeString(file, "8573541416321293190={productCount,plural,=1{Je hebt een product.}other{Je hebt {productCount} producten.}}\n", StandardCharsets.UTF_8);
+			msgBundle.reload();
+
+			String rendered = SoyTestUtil.render(soy.soySauce(), "nl.serviceplanet.tmpl", Map.of("productCount", 13), msgBundle);
+			Assertions.assertEquals("Je hebt 13 producten.", rendered);
+		}
+	}
+
+	private static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+		while (!condition.getAsBoolean()) {
+			Assertions.assertTrue(System.currentTimeMillis() < deadline, "Timed out waiting for reload.");
+			Thread.sleep(50);
+		}
+	}
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright © 2024 Service Planet Rotterdam B.V. (it@ask.serviceplanet.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.serviceplanet.closuretemplates.toolbox.msgbundle;
+
+import com.google.common.io.CharSource;
+import com.google.template.soy.msgs.SoyMsgException;
+import nl.serviceplanet.closuretemplates.toolbox.msgbundle.util.SoyUtil;
+import nl.serviceplanet.closuretemplates.toolbox.util.SoyTestUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Map;
+
+public final class ShardedSoyMsgBundleTest {
+
+	private static final Map<String, String> FILES = Map.of(
+			ShardedSoyMsgBundle.INDEX_FILE_NAME, "# index\n1=shop.cart\n2=shop.cart\n3=account\n",
+			ShardedSoyMsgBundle.shardFileName("shop.cart"), "1=Winkelwagen\n2=Afrekenen\n",
+			ShardedSoyMsgBundle.shardFileName("account"), "3=Mijn account\n"
+	);
+
+	@Test
+	public void testShardIsLoadedOnFirstLookup() throws IOException {
+		ShardedSoyMsgBundle msgBundle = ShardedSoyMsgBundle.load(fileName -> CharSource.wrap(FILES.get(fileName)));
+
+		Assertions.assertNull(msgBundle.getLocaleString());
+		Assertions.assertEquals(3, msgBundle.getNumMsgs());
+		Assertions.assertEquals(2, msgBundle.getShardCount());
+		Assertions.assertEquals(0, msgBundle.getLoadedShardCount());
+
+		Assertions.assertEquals("Afrekenen", msgBundle.getMsg(2).getParts().get(0).toString());
+		Assertions.assertEquals(1, msgBundle.getLoadedShardCount());
+
+		Assertions.assertNull(msgBundle.getMsg(4));
+		Assertions.assertEquals(1, msgBundle.getLoadedShardCount());
+
+		Assertions.assertNotNull(msgBundle.getMsg(3));
+		Assertions.assertEquals(2, msgBundle.getLoadedShardCount());
+	}
+
+	@Test
+	public void testShardIsParsedWithPlaceholderIndex() throws IOException {
+		SoyUtil.SoyCompilation soy = SoyTestUtil.compileSoyFile("product-count.soy");
+		// The count inside the plural is placeholder 'PRODUCT_COUNT_2', which can not be guessed from 'productCount'.
+		Map<String, String> files = Map.of(
+				ShardedSoyMsgBundle.INDEX_FILE_NAME, "8573541416321293190=nl.serviceplanet\n",
+				ShardedSoyMsgBundle.shardFileName("nl.serviceplanet"),
+				"8573541416321293190={productCount,plural,=1{Je hebt een product.}other{Je hebt {productCount} producten.}}\n"
+		);
+
+		ShardedSoyMsgBundle msgBundle = ShardedSoyMsgBundle.load(fileName -> CharSource.wrap(files.get(fileName)), "nl",
+				PlaceholderIndex.fromFileSet(soy.soyFileSet()));
+		Assertions.assertEquals("nl", msgBundle.getLocaleString());
+
+		String rendered = SoyTestUtil.render(soy.soySauce(), soy.rootTemplateName(), Map.of("productCount", 13), msgBundle);
+		Assertions.assertEquals("Je hebt 13 producten.", rendered);
+	}
+
+	@Test
+	public void testInvalidIndexIsRejected() {
+		Map<String, String> files = Map.of(ShardedSoyMsgBundle.INDEX_FILE_NAME, "x=shop.cart\n");
+
+		Assertions.assertThrows(SoyMsgException.class,
+				() -> ShardedSoyMsgBundle.load(fileName -> CharSource.wrap(files.get(fileName))));
+	}
+}
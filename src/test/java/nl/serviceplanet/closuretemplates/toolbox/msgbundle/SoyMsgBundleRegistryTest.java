@@ -0,0 +1,113 @@
+/*
+ * Copyright © 2024 Service Planet Rotterdam B.V. (it@ask.serviceplanet.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.serviceplanet.closuretemplates.toolbox.msgbundle;
+
+import com.google.template.soy.msgs.SoyMsgBundle;
+import com.google.template.soy.msgs.restricted.SoyMsgBundleImpl;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public final class SoyMsgBundleRegistryTest {
+
+	@Test
+	public void testLeastRecentlyUsedBundleIsEvicted() {
+		AtomicInteger loads = new AtomicInteger();
+		SoyMsgBundleRegistry<String> registry = SoyMsgBundleRegistry.builder()
+				.maximumSize(2)
+				.build(locale -> {
+					loads.incrementAndGet();
+					return new SoyMsgBundleImpl(locale, List.of());
+				});
+
+		SoyMsgBundle nl = registry.get("nl");
+		registry.get("de");
+		Assertions.assertSame(nl, registry.get("nl"));
+		registry.get("fr");
+
+		Assertions.assertEquals(3, loads.get());
+		Assertions.assertEquals(2, registry.size());
+		Assertions.assertNull(registry.getIfPresent("de"));
+		Assertions.assertSame(nl, registry.getIfPresent("nl"));
+		Assertions.assertEquals(1, registry.stats().evictionCount());
+
+		registry.get("de");
+		Assertions.assertEquals(4, loads.get());
+	}
+
+	@Test
+	public void testConcurrentGetLoadsOnce() throws Exception {
+		AtomicInteger loads = new AtomicInteger();
+		CountDownLatch loading = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		SoyMsgBundleRegistry<String> registry = SoyMsgBundleRegistry.builder()
+				.build(locale -> {
+					loads.incrementAndGet();
+					loading.countDown();
+					try {
+						release.await(10, TimeUnit.SECONDS);
+					} catch (InterruptedException exc) {
+						Thread.currentThread().interrupt();
+					}
+					return new SoyMsgBundleImpl(locale, List.of());
+				});
+
+		int threads = 8;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<SoyMsgBundle>> results = new ArrayList<>();
+			for (int i = 0; i < threads; i++) {
+				results.add(executor.submit(() -> registry.get("nl")));
+			}
+			Assertions.assertTrue(loading.await(10, TimeUnit.SECONDS));
+			release.countDown();
+
+			SoyMsgBundle first = results.get(0).get(10, TimeUnit.SECONDS);
+			for (Future<SoyMsgBundle> result : results) {
+				Assertions.assertSame(first, result.get(10, TimeUnit.SECONDS));
+			}
+			Assertions.assertEquals(1, loads.get());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testFailedLoadIsNotCached() {
+		AtomicInteger loads = new AtomicInteger();
+		SoyMsgBundleRegistry<String> registry = SoyMsgBundleRegistry.builder()
+				.build(locale -> {
+					if (loads.incrementAndGet() == 1) {
+						throw new IOException("Not available yet.");
+					}
+					return new SoyMsgBundleImpl(locale, List.of());
+				});
+
+		Assertions.assertThrows(UncheckedIOException.class, () -> registry.get("nl"));
+		Assertions.assertNotNull(registry.get("nl"));
+		Assertions.assertEquals(2, loads.get());
+	}
+}
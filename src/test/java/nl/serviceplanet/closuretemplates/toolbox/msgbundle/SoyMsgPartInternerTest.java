@@ -0,0 +1,65 @@
+/*
+ * Copyright © 2024 Service Planet Rotterdam B.V. (it@ask.serviceplanet.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.serviceplanet.closuretemplates.toolbox.msgbundle;
+
+import com.google.common.io.CharSource;
+import com.google.template.soy.msgs.SoyMsgBundle;
+import com.google.template.soy.msgs.restricted.SoyMsgPart;
+import com.google.template.soy.msgs.restricted.SoyMsgPluralPart;
+import com.google.template.soy.msgs.restricted.SoyMsgPluralCaseSpec;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+public final class SoyMsgPartInternerTest {
+
+	@Test
+	public void testEqualPartsAreShared() {
+		SoyMsgPartInterner interner = new SoyMsgPartInterner();
+
+		Assertions.assertSame(interner.name(new String("USER_NAME")), interner.name(new String("USER_NAME")));
+		Assertions.assertSame(interner.placeholderPart(new String("USER_NAME")), interner.placeholderPart(new String("USER_NAME")));
+		Assertions.assertSame(interner.rawTextPart(new String("Hallo ")), interner.rawTextPart(new String("Hallo ")));
+		Assertions.assertSame(interner.pluralCaseSpec("=1", selector -> new SoyMsgPluralCaseSpec(1)),
+				interner.pluralCaseSpec("=1", selector -> new SoyMsgPluralCaseSpec(1)));
+
+		SoyMsgPartInterner.Statistics statistics = interner.statistics();
+		// One hit per second lookup, plus the names of both placeholder parts.
+		Assertions.assertEquals(6, statistics.hits());
+		Assertions.assertTrue(statistics.estimatedBytesSaved() > 0);
+	}
+
+	@Test
+	public void testPartsAreSharedAcrossBundles() throws IOException {
+		String properties = "1={productCount,plural,=1{Een product.}other{# producten.}}\n";
+		SoyMsgBundle first = PropertiesIcuParser.parseIcuMsgsPropertiesFile(CharSource.wrap(properties));
+		SoyMsgBundle second = PropertiesIcuParser.parseIcuMsgsPropertiesFile(CharSource.wrap(properties));
+
+		SoyMsgPluralPart firstPlural = (SoyMsgPluralPart) first.getMsg(1).getParts().get(0);
+		SoyMsgPluralPart secondPlural = (SoyMsgPluralPart) second.getMsg(1).getParts().get(0);
+
+		Assertions.assertSame(firstPlural.getPluralVarName(), secondPlural.getPluralVarName());
+		for (int i = 0; i < firstPlural.getCases().size(); i++) {
+			SoyMsgPart.Case<SoyMsgPluralCaseSpec> firstCase = firstPlural.getCases().get(i);
+			SoyMsgPart.Case<SoyMsgPluralCaseSpec> secondCase = secondPlural.getCases().get(i);
+			Assertions.assertSame(firstCase.spec(), secondCase.spec());
+			for (int j = 0; j < firstCase.parts().size(); j++) {
+				Assertions.assertSame(firstCase.parts().get(j), secondCase.parts().get(j));
+			}
+		}
+	}
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright © 2024 Service Planet Rotterdam B.V. (it@ask.serviceplanet.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.serviceplanet.closuretemplates.toolbox.msgbundle;
+
+import com.google.template.soy.msgs.SoyMsgBundle;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Set;
+
+public final class VerboseSoyMsgBundleTest {
+
+	@Test
+	public void testEveryLookupIsCheckedWithoutSampling() {
+		VerboseSoyMsgBundle msgBundle = new VerboseSoyMsgBundle("test", SoyMsgBundle.EMPTY);
+		for (int i = 0; i < 10; i++) {
+			Assertions.assertNull(msgBundle.getMsg(1));
+		}
+		Assertions.assertNull(msgBundle.getMsg(2));
+
+		Assertions.assertEquals(Set.of(1L, 2L), msgBundle.getFailedMsgLookups());
+		Assertions.assertEquals(10, msgBundle.getFailedMsgLookupCount(1));
+		Assertions.assertEquals(1, msgBundle.getFailedMsgLookupCount(2));
+	}
+
+	@Test
+	public void testSamplingDoesNotAliasWithLookupPattern() {
+		int sampleRate = 4;
+		VerboseSoyMsgBundle msgBundle = new VerboseSoyMsgBundle("test", SoyMsgBundle.EMPTY, Duration.ofHours(1), sampleRate);
+
+		// A "render" which looks up the same sampleRate messages in the same order every time. Taking every N-th
+		// lookup would only ever check one of them.
+		int renders = 4000;
+		for (int render = 0; render < renders; render++) {
+			for (long msgId = 1; msgId <= sampleRate; msgId++) {
+				msgBundle.getMsg(msgId);
+			}
+		}
+
+		Assertions.assertEquals(Set.of(1L, 2L, 3L, 4L), msgBundle.getFailedMsgLookups());
+		for (long msgId = 1; msgId <= sampleRate; msgId++) {
+			// Expected renders / sampleRate = 1000 checks per message, the bounds are far outside random variation.
+			long count = msgBundle.getFailedMsgLookupCount(msgId);
+			Assertions.assertTrue(count > 700 && count < 1300, "Unexpected number of sampled lookups: " + count);
+		}
+	}
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright © 2024 Service Planet Rotterdam B.V. (it@ask.serviceplanet.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.serviceplanet.closuretemplates.toolbox.msgbundle.icu;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+public final class MessageFormatLexerTest {
+
+	private static final String MESSAGE = "Hallo {userName}, {productCount,plural,=1{een product}other{# producten}}.";
+
+	@Test
+	public void testTokenize() {
+		Assertions.assertEquals(List.of(
+				new MessageFormatToken(MessageFormatTokenType.TEXT, "Hallo "),
+				new MessageFormatToken(MessageFormatTokenType.PLACEHOLDER, "{userName}"),
+				new MessageFormatToken(MessageFormatTokenType.TEXT, ", "),
+				new MessageFormatToken(MessageFormatTokenType.PLURAL, "{productCount,plural,=1{een product}other{# producten}}"),
+				new MessageFormatToken(MessageFormatTokenType.TEXT, "."),
+				new MessageFormatToken(MessageFormatTokenType.EOF, "")
+		), new MessageFormatLexer(MESSAGE).tokenize());
+	}
+
+	@Test
+	public void testTokenizeInPlaceMatchesTokenize() {
+		List<MessageFormatToken> copied = new MessageFormatLexer(MESSAGE).tokenize();
+		List<MessageFormatToken> inPlace = new MessageFormatLexer(MESSAGE).tokenizeInPlace().stream()
+				.map(MessageFormatTokenView::toToken)
+				.toList();
+
+		Assertions.assertEquals(copied, inPlace);
+	}
+}
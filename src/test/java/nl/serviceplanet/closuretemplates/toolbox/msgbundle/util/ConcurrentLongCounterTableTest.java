@@ -0,0 +1,113 @@
+/*
+ * Copyright © 2024 Service Planet Rotterdam B.V. (it@ask.serviceplanet.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.serviceplanet.closuretemplates.toolbox.msgbundle.util;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public final class ConcurrentLongCounterTableTest {
+
+	@Test
+	public void testFullTable() {
+		ConcurrentLongCounterTable table = new ConcurrentLongCounterTable(4);
+		Assertions.assertTrue(table.slotCount() >= 8);
+
+		for (long key = 1; key <= 4; key++) {
+			Assertions.assertNotEquals(-1, table.increment(key));
+		}
+		Assertions.assertEquals(4, table.size());
+
+		Assertions.assertEquals(-1, table.increment(5));
+		Assertions.assertEquals(-1, table.increment(6));
+		Assertions.assertEquals(2, table.overflowCount());
+		Assertions.assertEquals(-1, table.indexOf(5));
+		Assertions.assertEquals(0, table.count(5));
+		Assertions.assertEquals(4, table.size());
+
+		// Keys which are in the table are still counted.
+		int slot = table.indexOf(3);
+		Assertions.assertEquals(slot, table.increment(3));
+		Assertions.assertEquals(2, table.count(3));
+
+		Map<Long, Long> counts = new HashMap<>();
+		table.forEach(counts::put);
+		Assertions.assertEquals(Map.of(1L, 1L, 2L, 1L, 3L, 2L, 4L, 1L), counts);
+	}
+
+	@Test
+	public void testManyMoreKeysThanMaxKeys() {
+		ConcurrentLongCounterTable table = new ConcurrentLongCounterTable(1000);
+		for (long key = 0; key < 100_000; key++) {
+			table.increment(key * 31);
+		}
+
+		Assertions.assertTrue(table.size() <= 1000);
+		Assertions.assertEquals(100_000, table.size() + table.overflowCount());
+	}
+
+	@Test
+	public void testConcurrentIncrements() throws Exception {
+		int threads = 8;
+		int keys = 5000;
+		int incrementsPerKey = 10;
+		// Room for only half of the keys, so threads race both for slots and for the last free keys.
+		ConcurrentLongCounterTable table = new ConcurrentLongCounterTable(keys / 2);
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			CountDownLatch start = new CountDownLatch(1);
+			List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				futures.add(executor.submit(() -> {
+					start.await();
+					for (int i = 0; i < incrementsPerKey; i++) {
+						for (long key = 0; key < keys; key++) {
+							table.increment(key);
+						}
+					}
+					return null;
+				}));
+			}
+			start.countDown();
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		long[] total = {0};
+		int[] present = {0};
+		table.forEach((key, count) -> {
+			total[0] += count;
+			present[0]++;
+			// Once a key is in the table, no increment of it is lost.
+			Assertions.assertTrue(count <= (long) threads * incrementsPerKey);
+		});
+		Assertions.assertEquals(table.size(), present[0]);
+		Assertions.assertTrue(present[0] <= keys / 2);
+		Assertions.assertEquals((long) threads * keys * incrementsPerKey, total[0] + table.overflowCount());
+	}
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright © 2024 Service Planet Rotterdam B.V. (it@ask.serviceplanet.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.serviceplanet.closuretemplates.toolbox.msgbundle.util;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public final class LongObjectHashMapTest {
+
+	@Test
+	public void testResizeKeepsEntriesAndOrder() {
+		LongObjectHashMap<String> map = new LongObjectHashMap<>();
+		for (long key = 0; key < 10_000; key++) {
+			Assertions.assertNull(map.put(key * 1_000_003L, "value" + key));
+		}
+
+		Assertions.assertEquals(10_000, map.size());
+		for (long key = 0; key < 10_000; key++) {
+			Assertions.assertEquals("value" + key, map.get(key * 1_000_003L));
+			Assertions.assertEquals(key * 1_000_003L, map.keyAt((int) key));
+		}
+		Assertions.assertNull(map.get(1));
+		Assertions.assertFalse(map.containsKey(-1));
+	}
+
+	@Test
+	public void testPutReplacesAndPutIfAbsentKeeps() {
+		LongObjectHashMap<String> map = new LongObjectHashMap<>(2);
+		map.put(1, "a");
+		map.put(2, "b");
+
+		Assertions.assertEquals("a", map.put(1, "c"));
+		Assertions.assertEquals("b", map.putIfAbsent(2, "d"));
+		Assertions.assertNull(map.putIfAbsent(3, "e"));
+
+		Assertions.assertEquals(ImmutableList.of("c", "b", "e"), ImmutableList.copyOf(map));
+	}
+
+	@Test
+	public void testRemove() {
+		LongObjectHashMap<String> map = new LongObjectHashMap<>();
+		for (long key = 1; key <= 100; key++) {
+			map.put(key, Long.toString(key));
+		}
+
+		Assertions.assertEquals("50", map.remove(50));
+		Assertions.assertNull(map.remove(50));
+		Assertions.assertNull(map.remove(1000));
+
+		Assertions.assertEquals(99, map.size());
+		Assertions.assertFalse(map.containsKey(50));
+		Assertions.assertEquals("51", map.get(51));
+		Assertions.assertEquals(49, map.keyAt(48));
+		Assertions.assertEquals(51, map.keyAt(49));
+
+		// The map is still usable after a removal.
+		map.put(50, "50 again");
+		Assertions.assertEquals("50 again", map.valueAt(99));
+	}
+
+	@Test
+	public void testTrimToSize() {
+		LongObjectHashMap<String> map = new LongObjectHashMap<>(1000);
+		map.put(7, "seven");
+		map.trimToSize();
+
+		Assertions.assertEquals("seven", map.get(7));
+		map.put(8, "eight");
+		Assertions.assertEquals("eight", map.get(8));
+		Assertions.assertEquals(2, map.size());
+	}
+}
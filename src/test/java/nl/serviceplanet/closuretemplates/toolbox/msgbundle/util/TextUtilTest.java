@@ -0,0 +1,143 @@
+/*
+ * Copyright © 2024 Service Planet Rotterdam B.V. (it@ask.serviceplanet.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.serviceplanet.closuretemplates.toolbox.msgbundle.util;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public final class TextUtilTest {
+
+	@Test
+	public void testIndexOf() {
+		Assertions.assertEquals(2, TextUtil.indexOf("ab=c=d", '=', 0, 6));
+		Assertions.assertEquals(4, TextUtil.indexOf("ab=c=d", '=', 3, 6));
+		Assertions.assertEquals(-1, TextUtil.indexOf("ab=c=d", '=', 0, 2));
+		Assertions.assertEquals(-1, TextUtil.indexOf("", '=', 0, 0));
+
+		Assertions.assertEquals(2, TextUtil.indexOf("abcabc", "ca", 0));
+		Assertions.assertEquals(3, TextUtil.indexOf("abcabc", "abc", 1));
+		Assertions.assertEquals(-1, TextUtil.indexOf("abcabc", "abc", 4));
+		Assertions.assertEquals(-1, TextUtil.indexOf("ab", "abc", 0));
+		Assertions.assertEquals(0, TextUtil.indexOf("abc", "abc", -1));
+		// Same as String.indexOf for an empty string to find.
+		Assertions.assertEquals("abc".indexOf("", 2), TextUtil.indexOf("abc", "", 2));
+		Assertions.assertEquals("abc".indexOf("", 5), TextUtil.indexOf("abc", "", 5));
+		Assertions.assertEquals("abc".indexOf("", -1), TextUtil.indexOf("abc", "", -1));
+	}
+
+	@Test
+	public void testRegionEquals() {
+		Assertions.assertTrue(TextUtil.regionEquals("one=two", 4, "two"));
+		Assertions.assertTrue(TextUtil.regionEquals("one=two", 7, ""));
+		Assertions.assertFalse(TextUtil.regionEquals("one=two", 5, "two"));
+		Assertions.assertFalse(TextUtil.regionEquals("one=two", -1, "o"));
+
+		Assertions.assertTrue(TextUtil.regionEquals("one=two", 0, 3, "one"));
+		Assertions.assertFalse(TextUtil.regionEquals("one=two", 0, 4, "one"));
+		Assertions.assertTrue(TextUtil.regionEquals("one=two", 3, 3, ""));
+	}
+
+	@Test
+	public void testCamelCaseToUpperSnakeCase() {
+		Assertions.assertEquals("PRODUCT_COUNT", TextUtil.camelCaseToUpperSnakeCase("productCount"));
+		Assertions.assertEquals("A_B_C", TextUtil.camelCaseToUpperSnakeCase("aBC"));
+		Assertions.assertEquals("USER2_NAME", TextUtil.camelCaseToUpperSnakeCase("user2Name"));
+		Assertions.assertEquals("_USER", TextUtil.camelCaseToUpperSnakeCase("User"));
+
+		Assertions.assertThrows(IllegalArgumentException.class, () -> TextUtil.camelCaseToUpperSnakeCase(""));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> TextUtil.camelCaseToUpperSnakeCase("ABC"));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> TextUtil.camelCaseToUpperSnakeCase("user_name"));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> TextUtil.camelCaseToUpperSnakeCase("naïve"));
+
+		StringBuilder sb = new StringBuilder("{");
+		TextUtil.appendCamelCaseAsUpperSnakeCase("{userName}", 1, 9, sb);
+		Assertions.assertEquals("{USER_NAME", sb.toString());
+	}
+
+	@Test
+	public void testCaseChecks() {
+		Assertions.assertTrue(TextUtil.isCamelCase("productCount"));
+		Assertions.assertTrue(TextUtil.isCamelCase("a1"));
+		Assertions.assertFalse(TextUtil.isCamelCase(""));
+		Assertions.assertFalse(TextUtil.isCamelCase("ABC"));
+		Assertions.assertFalse(TextUtil.isCamelCase("user-name"));
+		Assertions.assertFalse(TextUtil.isCamelCase("é"));
+		Assertions.assertTrue(TextUtil.isCamelCase("{abc}", 1, 4));
+
+		Assertions.assertTrue(TextUtil.isUpperSnakeCase("PRODUCT_COUNT"));
+		Assertions.assertTrue(TextUtil.isUpperSnakeCase("_USER"));
+		Assertions.assertTrue(TextUtil.isUpperSnakeCase("A1_2"));
+		Assertions.assertFalse(TextUtil.isUpperSnakeCase(""));
+		Assertions.assertFalse(TextUtil.isUpperSnakeCase("_1"));
+		Assertions.assertFalse(TextUtil.isUpperSnakeCase("A__B"));
+		Assertions.assertFalse(TextUtil.isUpperSnakeCase("A_"));
+		Assertions.assertFalse(TextUtil.isUpperSnakeCase("A_b"));
+		Assertions.assertTrue(TextUtil.isUpperSnakeCase("{A_B}", 1, 4));
+
+		Assertions.assertTrue(TextUtil.isVariableName("productCount"));
+		Assertions.assertTrue(TextUtil.isVariableName("PRODUCT_COUNT"));
+		Assertions.assertFalse(TextUtil.isVariableName("product_count"));
+		Assertions.assertFalse(TextUtil.isVariableName("123"));
+	}
+
+	@Test
+	public void testSplitWithoutRegex() {
+		Assertions.assertEquals(List.of(""), TextUtil.splitWithoutRegex("", "#"));
+		Assertions.assertEquals(List.of("", ""), TextUtil.splitWithoutRegex("#", "#"));
+		Assertions.assertEquals(List.of("", "", "", ""), TextUtil.splitWithoutRegex("###", "#"));
+		Assertions.assertEquals(List.of("", "", "", "-"), TextUtil.splitWithoutRegex("###-", "#"));
+		Assertions.assertEquals(List.of("a", "b::c"), TextUtil.splitWithoutRegex("a::b::c", "::", 2));
+		Assertions.assertEquals(List.of("a::b"), TextUtil.splitWithoutRegex("a::b", "::", 1));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> TextUtil.splitWithoutRegex("a", "#", 0));
+	}
+
+	@Test
+	public void testSplitByIndex() {
+		List<String> ranges = new ArrayList<>();
+		// Only the [1, 9) range "a::b::::" is split.
+		int partCount = TextUtil.split("[a::b::::]", 1, 9, "::", Integer.MAX_VALUE, (start, end) -> ranges.add(start + "-" + end));
+		Assertions.assertEquals(4, partCount);
+		Assertions.assertEquals(List.of("1-2", "4-5", "7-7", "9-9"), ranges);
+
+		ranges.clear();
+		Assertions.assertEquals(2, TextUtil.split("a,b,c", 0, 5, ",", 2, (start, end) -> ranges.add(start + "-" + end)));
+		Assertions.assertEquals(List.of("0-1", "2-5"), ranges);
+
+		ranges.clear();
+		Assertions.assertEquals(1, TextUtil.split("", 0, 0, ",", 3, (start, end) -> ranges.add(start + "-" + end)));
+		Assertions.assertEquals(List.of("0-0"), ranges);
+
+		Assertions.assertThrows(IllegalArgumentException.class, () -> TextUtil.split("a", 0, 1, "", 2, (start, end) -> {}));
+	}
+
+	@Test
+	public void testBeforeAndAfter() {
+		Assertions.assertEquals("a", TextUtil.before("a.b.c", "."));
+		Assertions.assertEquals("b.c", TextUtil.after("a.b.c", "."));
+		Assertions.assertEquals("a.b", TextUtil.beforeLast("a.b.c", "."));
+		Assertions.assertEquals("c", TextUtil.afterLast("a.b.c", "."));
+		Assertions.assertNull(TextUtil.before("abc", "."));
+		Assertions.assertEquals("x", TextUtil.after(null, ".", "x"));
+
+		Assertions.assertEquals("b", TextUtil.between("[b][c]", "[", "]"));
+		Assertions.assertEquals("b][c", TextUtil.betweenWidest("[b][c]", "[", "]"));
+		Assertions.assertEquals("b", TextUtil.extractWrappedText("{b}", "{", "}"));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> TextUtil.extractWrappedText("{b", "{", "}"));
+	}
+}
@@ -15,11 +15,14 @@
  */
 package nl.serviceplanet.closuretemplates.toolbox.util;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.io.Resources;
 import com.google.template.soy.SoyFileSet;
 import com.google.template.soy.jbcsrc.api.SoySauce;
 import com.google.template.soy.msgs.SoyMsgBundle;
 import com.google.template.soy.msgs.SoyMsgBundleHandler;
+import com.google.template.soy.msgs.restricted.SoyMsg;
+import com.google.template.soy.msgs.restricted.SoyMsgRawTextPart;
 import nl.serviceplanet.closuretemplates.toolbox.msgbundle.PropertiesIcuGenerator;
 import nl.serviceplanet.closuretemplates.toolbox.msgbundle.util.SoyUtil;
 import nl.serviceplanet.closuretemplates.toolbox.msgbundle.util.TextUtil;
@@ -57,6 +60,20 @@ public final class SoyTestUtil {
 		return SoyUtil.loadIcuMsgBundle(url);
 	}
 
+	/**
+	 * Creates a message with a single raw text part. The locale and description are optional ({@code null}).
+	 */
+	public static SoyMsg rawTextMsg(long id, String localeString, String text, String desc) {
+		SoyMsg.Builder msg = SoyMsg.builder().setId(id).setParts(ImmutableList.of(SoyMsgRawTextPart.of(text)));
+		if (localeString != null) {
+			msg.setLocaleString(localeString);
+		}
+		if (desc != null) {
+			msg.setDesc(desc);
+		}
+		return msg.build();
+	}
+
 	public static String render(SoySauce sauce, String templateName, Map<String, ?> data, SoyMsgBundle bundle) {
 		return sauce
 				.renderTemplate(templateName)